@@ -0,0 +1,96 @@
+package me.nemtudo.voicechat.network;
+
+import me.nemtudo.voicechat.model.PlayerStateStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * server:players keyframe compression: CPU per keyframe of {@link FrameCompressor} (preset
+ * dictionary) against plain deflate, for JSON and quantized binary keyframes. The compressed
+ * sizes (the ratio side of the trade-off) are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameCompressorBenchmark {
+
+    @Param({"20", "500", "2000"})
+    public int players;
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private final FrameCompressor compressor = new FrameCompressor();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private byte[] keyframe;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        PlayerStateStore store = new PlayerStateStore();
+        Random random = new Random(42);
+        int[] worlds = {store.worldIndex(UUID.randomUUID()), store.worldIndex(UUID.randomUUID())};
+        for (int i = 0; i < players; i++) {
+            store.capture(new UUID(random.nextLong(), random.nextLong()), "Player" + i, worlds[i % 2], true,
+                    random.nextDouble() * 2000 - 1000, 64 + random.nextDouble() * 32, random.nextDouble() * 2000 - 1000,
+                    1, 1000);
+        }
+
+        keyframe = format.equals("binary")
+                ? new PlayerFrameCodec().encodeKeyframe(store, 1, false, null, true)
+                : new PlayerJsonWriter().writeKeyframe(store, 1, false, null).getBytes(StandardCharsets.UTF_8);
+        // Deflate adds at most a few bytes per 16 KB block to incompressible input
+        buffer = new byte[keyframe.length + keyframe.length / 1000 + 64];
+
+        byte[] withDictionary = compressor.compress(keyframe);
+        System.out.printf("%n%d players, %s keyframe: %d bytes -> %d with dictionary, %d plain deflate%n",
+                players, format, keyframe.length, withDictionary != null ? withDictionary.length : keyframe.length,
+                plain());
+    }
+
+    @TearDown
+    public void tearDown() {
+        compressor.end();
+        deflater.end();
+    }
+
+    @Benchmark
+    public byte[] dictionary() {
+        return compressor.compress(keyframe);
+    }
+
+    @Benchmark
+    public int plainDeflate() {
+        return plain();
+    }
+
+    private int plain() {
+        deflater.reset();
+        deflater.setInput(keyframe);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,93 @@
+package me.nemtudo.voicechat.network;
+
+import com.google.gson.Gson;
+import me.nemtudo.voicechat.model.PlayerStateStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * server:players keyframe serialization: {@link PlayerJsonWriter} against the Gson path
+ * it replaced (one DTO per player, then reflection).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerJsonWriterBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int players;
+
+    private final PlayerStateStore store = new PlayerStateStore();
+    private final PlayerJsonWriter writer = new PlayerJsonWriter();
+    private final Gson gson = new Gson();
+    private long seq = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int[] worlds = {store.worldIndex(UUID.randomUUID()), store.worldIndex(UUID.randomUUID())};
+        for (int i = 0; i < players; i++) {
+            store.capture(new UUID(random.nextLong(), random.nextLong()), "Player" + i, worlds[i % 2], true,
+                    random.nextDouble() * 2000 - 1000, 64 + random.nextDouble() * 32, random.nextDouble() * 2000 - 1000,
+                    1, 1000);
+        }
+    }
+
+    @Benchmark
+    public String writer() {
+        return writer.writeKeyframe(store, ++seq, false, null);
+    }
+
+    @Benchmark
+    public String gson() {
+        List<GsonPlayer> states = new ArrayList<>(store.size());
+        for (int slot = store.nextOccupied(0); slot >= 0; slot = store.nextOccupied(slot + 1)) {
+            GsonPlayer state = new GsonPlayer(store.getUuid(slot), store.getName(slot));
+            if (store.hasPosition(slot)) {
+                state.position = new GsonPosition(store.getX(slot), store.getY(slot), store.getZ(slot),
+                        store.getWorldUuid(store.getWorld(slot)));
+            }
+            states.add(state);
+        }
+        return gson.toJson(new GsonPayload(++seq, store.getLatestSampleTime(), states.size(), states));
+    }
+
+    // Same shape as the DTOs the Gson path serialized
+
+    private record GsonPayload(long seq, long time, int playerCount, List<GsonPlayer> players) {}
+
+    private static final class GsonPlayer {
+
+        private final String uuid;
+        private final String name;
+        private GsonPosition position;
+        private final Map<String, Object> settings = new HashMap<>();
+
+        private GsonPlayer(String uuid, String name) {
+            this.uuid = uuid;
+            this.name = name;
+        }
+    }
+
+    private record GsonPosition(double x, double y, double z, String world) {}
+}
@@ -0,0 +1,216 @@
+package me.nemtudo.voicechat.utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DistanceKernel} against a Vector API variant at 500/2000/5000 players in a single
+ * world (a 512 x 512 area, 32 blocks high, voice range 32).
+ * <ul>
+ *     <li>{@code pairwise}: every player against the whole struct-of-arrays position buffer</li>
+ *     <li>{@code grid}: every player against the 27 cells around it, cell size = voice range,
+ *     the way {@link SpatialHashGrid} calls the kernel</li>
+ * </ul>
+ * The vector variant only tied on the pairwise loops (C2 already vectorizes the scalar
+ * squared-distance loop) and was slower on the grid path at every player count, so only
+ * the scalar kernel ships.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DistanceKernelBenchmark {
+
+    private static final double RANGE = 32;
+    private static final int AREA_CELLS = 16;
+
+    @Param({"500", "2000", "5000"})
+    public int players;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    private boolean vector;
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private int[] hits;
+    private double[] out;
+
+    // Players bucketed by cell (x, z; one layer high), struct of arrays per cell
+    private double[][] cellX;
+    private double[][] cellY;
+    private double[][] cellZ;
+    private int[] cellCount;
+
+    @Setup
+    public void setUp() {
+        vector = kernel.equals("vector");
+
+        Random random = new Random(3);
+        xs = new double[players];
+        ys = new double[players];
+        zs = new double[players];
+        double side = AREA_CELLS * RANGE;
+        for (int i = 0; i < players; i++) {
+            xs[i] = random.nextDouble() * side;
+            ys[i] = 64 + random.nextDouble() * RANGE;
+            zs[i] = random.nextDouble() * side;
+        }
+        hits = new int[players];
+        out = new double[players];
+
+        int cells = AREA_CELLS * AREA_CELLS;
+        cellCount = new int[cells];
+        for (int i = 0; i < players; i++) {
+            cellCount[cellOf(xs[i], zs[i])]++;
+        }
+        cellX = new double[cells][];
+        cellY = new double[cells][];
+        cellZ = new double[cells][];
+        for (int c = 0; c < cells; c++) {
+            cellX[c] = new double[cellCount[c]];
+            cellY[c] = new double[cellCount[c]];
+            cellZ[c] = new double[cellCount[c]];
+            cellCount[c] = 0;
+        }
+        for (int i = 0; i < players; i++) {
+            int c = cellOf(xs[i], zs[i]);
+            cellX[c][cellCount[c]] = xs[i];
+            cellY[c][cellCount[c]] = ys[i];
+            cellZ[c][cellCount[c]] = zs[i];
+            cellCount[c]++;
+        }
+    }
+
+    @Benchmark
+    public int pairwiseWithin() {
+        int found = 0;
+        for (int i = 0; i < players; i++) {
+            found += within(xs[i], ys[i], zs[i], xs, ys, zs, players);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public double pairwiseDistances() {
+        double sum = 0;
+        for (int i = 0; i < players; i++) {
+            if (vector) {
+                VectorKernel.squaredDistances(xs[i], ys[i], zs[i], xs, ys, zs, players, out);
+            } else {
+                DistanceKernel.squaredDistances(xs[i], ys[i], zs[i], xs, ys, zs, players, out);
+            }
+            sum += out[i ^ 1];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int gridWithin() {
+        int found = 0;
+        for (int i = 0; i < players; i++) {
+            int cx = (int) (xs[i] / RANGE);
+            int cz = (int) (zs[i] / RANGE);
+            for (int x = Math.max(0, cx - 1); x <= Math.min(AREA_CELLS - 1, cx + 1); x++) {
+                for (int z = Math.max(0, cz - 1); z <= Math.min(AREA_CELLS - 1, cz + 1); z++) {
+                    int c = x * AREA_CELLS + z;
+                    found += within(xs[i], ys[i], zs[i], cellX[c], cellY[c], cellZ[c], cellCount[c]);
+                }
+            }
+        }
+        return found;
+    }
+
+    private int within(double x, double y, double z, double[] px, double[] py, double[] pz, int count) {
+        return vector
+                ? VectorKernel.within(x, y, z, RANGE * RANGE, px, py, pz, count, hits)
+                : DistanceKernel.within(x, y, z, RANGE * RANGE, px, py, pz, count, hits);
+    }
+
+    private static int cellOf(double x, double z) {
+        return (int) (x / RANGE) * AREA_CELLS + (int) (z / RANGE);
+    }
+
+    // SPECIES.length() positions per iteration, scalar tail
+    private static final class VectorKernel {
+
+        private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+        static int within(double x, double y, double z, double radiusSquared,
+                          double[] xs, double[] ys, double[] zs, int count, int[] hits) {
+            DoubleVector px = DoubleVector.broadcast(SPECIES, x);
+            DoubleVector py = DoubleVector.broadcast(SPECIES, y);
+            DoubleVector pz = DoubleVector.broadcast(SPECIES, z);
+
+            int found = 0;
+            int upper = SPECIES.loopBound(count);
+            int i = 0;
+            for (; i < upper; i += SPECIES.length()) {
+                VectorMask<Double> inside = squaredDistance(px, py, pz, xs, ys, zs, i)
+                        .compare(VectorOperators.LE, radiusSquared);
+                long lanes = inside.toLong();
+                while (lanes != 0) {
+                    hits[found++] = i + Long.numberOfTrailingZeros(lanes);
+                    lanes &= lanes - 1;
+                }
+            }
+
+            for (; i < count; i++) {
+                double dx = xs[i] - x;
+                double dy = ys[i] - y;
+                double dz = zs[i] - z;
+                if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                    hits[found++] = i;
+                }
+            }
+            return found;
+        }
+
+        static void squaredDistances(double x, double y, double z,
+                                     double[] xs, double[] ys, double[] zs, int count, double[] out) {
+            DoubleVector px = DoubleVector.broadcast(SPECIES, x);
+            DoubleVector py = DoubleVector.broadcast(SPECIES, y);
+            DoubleVector pz = DoubleVector.broadcast(SPECIES, z);
+
+            int upper = SPECIES.loopBound(count);
+            int i = 0;
+            for (; i < upper; i += SPECIES.length()) {
+                squaredDistance(px, py, pz, xs, ys, zs, i).intoArray(out, i);
+            }
+
+            for (; i < count; i++) {
+                double dx = xs[i] - x;
+                double dy = ys[i] - y;
+                double dz = zs[i] - z;
+                out[i] = dx * dx + dy * dy + dz * dz;
+            }
+        }
+
+        private static DoubleVector squaredDistance(DoubleVector px, DoubleVector py, DoubleVector pz,
+                                                    double[] xs, double[] ys, double[] zs, int offset) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, offset).sub(px);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, offset).sub(py);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, zs, offset).sub(pz);
+            return dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+        }
+    }
+}
@@ -15,8 +15,10 @@ import com.hypixel.hytale.server.core.util.Config;
 import me.nemtudo.voicechat.commands.VoiceChatCommand;
 import me.nemtudo.voicechat.listener.PlayerConnect.ConnectSocketEmit;
 import me.nemtudo.voicechat.listener.PlayerDisconnect.DisconnectSocketEmit;
+import me.nemtudo.voicechat.listener.PlayerDisconnect.StopTracking;
 import me.nemtudo.voicechat.service.PlayerTrackingService;
 import me.nemtudo.voicechat.service.VersionCheckService;
+import me.nemtudo.voicechat.systems.PlayerMovementSystem;
 import me.nemtudo.voicechat.listener.PlayerConnect.WelcomeMessages;
 import me.nemtudo.voicechat.utils.ApiRequestHelper;
 import me.nemtudo.voicechat.utils.VoiceChatConfig;
@@ -71,6 +73,7 @@ public class VoiceChat extends JavaPlugin {
         initializeServices();
         registerCommands();
         registerListeners();
+        registerSystems();
         scheduleInitialTasks();
 
         logConfiguration();
@@ -103,6 +106,11 @@ public class VoiceChat extends JavaPlugin {
         getEventRegistry().register(PlayerConnectEvent.class, new WelcomeMessages(this, versionCheckService)::execute);
         getEventRegistry().register(PlayerConnectEvent.class, new ConnectSocketEmit(this)::execute);
         getEventRegistry().register(PlayerDisconnectEvent.class, new DisconnectSocketEmit(this)::execute);
+        getEventRegistry().register(PlayerDisconnectEvent.class, new StopTracking(this)::execute);
+    }
+
+    private void registerSystems() {
+        getEntityStoreRegistry().registerSystem(new PlayerMovementSystem(this));
     }
 
     private void scheduleInitialTasks() {
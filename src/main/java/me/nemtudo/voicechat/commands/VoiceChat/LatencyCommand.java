@@ -0,0 +1,57 @@
+package me.nemtudo.voicechat.commands.VoiceChat;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import me.nemtudo.voicechat.VoiceChat;
+import me.nemtudo.voicechat.utils.LatencyHistogram;
+import me.nemtudo.voicechat.websocket.EventLatencyStats;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.awt.*;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class LatencyCommand extends AbstractCommand {
+
+    private final VoiceChat plugin;
+
+    public LatencyCommand(VoiceChat plugin) {
+        super("latency", "Show the round-trip latency of acknowledged websocket events", false);
+        this.plugin = plugin;
+    }
+
+    @Override
+    @Nullable
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        Map<String, EventLatencyStats.EventLatency> events = plugin.getWebsocketManager().getLatencyStats().snapshot();
+
+        if (events.isEmpty()) {
+            String hint = plugin.config.get().getLatencyTrackingEnabled()
+                    ? "No acknowledged events yet"
+                    : "Latency tracking is disabled (LatencyTrackingEnabled)";
+            context.sender().sendMessage(Message.raw("[Voice Chat] " + hint).color(Color.ORANGE));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        context.sender().sendMessage(Message.raw("[Voice Chat] Round-trip latency (state: " +
+                plugin.getWebsocketManager().getState() + ")").color(Color.GREEN).bold(true));
+
+        for (Map.Entry<String, EventLatencyStats.EventLatency> entry : events.entrySet()) {
+            LatencyHistogram histogram = entry.getValue().getHistogram();
+            context.sender().sendMessage(Message.raw(entry.getKey() +
+                    ": n=" + histogram.count() +
+                    " p50=" + millis(histogram.percentileMicros(50)) +
+                    " p99=" + millis(histogram.percentileMicros(99)) +
+                    " max=" + millis(histogram.maxMicros()) +
+                    " timeouts=" + entry.getValue().getTimeouts()));
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.1fms", micros / 1000.0);
+    }
+}
@@ -19,6 +19,7 @@ public class ConnectSocketEmit {
     public void execute(PlayerConnectEvent event) {
         PlayerRef playerRef = event.getPlayerRef();
 
-        plugin.getWebsocketManager().emit("server:player_connect", playerRef.getUuid().toString());
+        String uuid = playerRef.getUuid().toString();
+        plugin.getWebsocketManager().emitDurable("server:player_connect", uuid, null, uuid);
     }
 }
\ No newline at end of file
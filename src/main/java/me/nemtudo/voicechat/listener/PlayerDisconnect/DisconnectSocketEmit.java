@@ -18,7 +18,8 @@ public class DisconnectSocketEmit {
 
     public void execute(PlayerDisconnectEvent event) {
         PlayerRef playerRef = event.getPlayerRef();
-        plugin.getWebsocketManager().emit("server:player_disconnect", playerRef.getUuid().toString());
+        String uuid = playerRef.getUuid().toString();
+        plugin.getWebsocketManager().emitDurable("server:player_disconnect", uuid, "server:player_connect", uuid);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package me.nemtudo.voicechat.listener.PlayerDisconnect;
+
+import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
+import me.nemtudo.voicechat.VoiceChat;
+
+/**
+ * Handles player disconnect event and removes the player from tracking
+ */
+public class StopTracking {
+
+    private final VoiceChat plugin;
+
+    public StopTracking(VoiceChat plugin) {
+        this.plugin = plugin;
+    }
+
+    public void execute(PlayerDisconnectEvent event) {
+        plugin.getPlayerTrackingService().onPlayerDisconnect(event.getPlayerRef().getUuid());
+    }
+}
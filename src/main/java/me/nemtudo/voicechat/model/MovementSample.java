@@ -0,0 +1,57 @@
+package me.nemtudo.voicechat.model;
+
+import me.nemtudo.voicechat.utils.PositionQuantizer;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Latest captured position of a player in event-driven tracking.
+ * <p>
+ * Written only by the world thread the player is currently in and read by the
+ * tracking sender when the sample is queued. Each capture publishes an immutable
+ * {@link Position} through a single volatile reference, so the reader never sees the
+ * coordinates of one capture mixed with the world of another. One instance per player.
+ */
+public class MovementSample {
+
+    public final UUID uuid;
+
+    private volatile Position latest;
+
+    // Whether the sample is waiting in the moved queue
+    public final AtomicBoolean queued = new AtomicBoolean(false);
+
+    public MovementSample(UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    /**
+     * Whether the player changed world or moved to another quantized position since the
+     * last capture, on the same grid the store uses for change detection
+     */
+    public boolean hasMoved(UUID worldUuid, double px, double py, double pz, PositionQuantizer quantizer) {
+        Position last = latest;
+        return last == null ||
+                !worldUuid.equals(last.worldUuid) ||
+                quantizer.quantize(px) != quantizer.quantize(last.x) ||
+                quantizer.quantize(py) != quantizer.quantize(last.y) ||
+                quantizer.quantize(pz) != quantizer.quantize(last.z);
+    }
+
+    /**
+     * Publishes a new capture
+     */
+    public void update(String name, UUID worldUuid, double px, double py, double pz) {
+        latest = new Position(name, worldUuid, px, py, pz);
+    }
+
+    /**
+     * @return the last capture, or null if there is none yet
+     */
+    public Position latest() {
+        return latest;
+    }
+
+    public record Position(String name, UUID worldUuid, double x, double y, double z) {}
+}
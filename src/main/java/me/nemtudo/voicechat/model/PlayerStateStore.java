@@ -0,0 +1,629 @@
+package me.nemtudo.voicechat.model;
+
+import me.nemtudo.voicechat.utils.PositionQuantizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Struct-of-arrays store of tracked players.
+ * <p>
+ * Each player owns a slot while tracked and slots are reused after the player
+ * leaves, so capturing a tick does not allocate. Alongside the current state the
+ * store keeps the last state sent to the API. Change detection happens as each
+ * player is captured: the slot is compared in place with its last sent state and
+ * the dirty set (with a running count) is kept up to date, so deciding whether to
+ * send is O(1) and building a delta is O(dirty).
+ * Velocities (blocks/second) are derived from consecutive captures, so the API
+ * can extrapolate positions between updates (dead reckoning).
+ * Not thread-safe: callers must synchronize access.
+ */
+public class PlayerStateStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final double DEFAULT_POSITION_PRECISION = 0.01;
+    private static final double COARSE_POSITION_PRECISION = 1.0;
+
+    // Level of detail of a player's position, by distance to the nearest other player
+    public static final byte LOD_FINE = 0;
+    public static final byte LOD_COARSE = 1;
+    public static final byte LOD_PRESENCE = 2;
+
+    private final Map<UUID, Integer> slotByUuid = new HashMap<>();
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount = 0;
+    private int highestSlot = 0;
+    private int size = 0;
+
+    private UUID[] uuids = new UUID[INITIAL_CAPACITY];
+    private String[] uuidStrings = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private double[] x = new double[INITIAL_CAPACITY];
+    private double[] y = new double[INITIAL_CAPACITY];
+    private double[] z = new double[INITIAL_CAPACITY];
+    private int[] world = new int[INITIAL_CAPACITY];
+    private long[] seenTick = new long[INITIAL_CAPACITY];
+    private double[] vx = new double[INITIAL_CAPACITY];
+    private double[] vy = new double[INITIAL_CAPACITY];
+    private double[] vz = new double[INITIAL_CAPACITY];
+    private long[] sampleTime = new long[INITIAL_CAPACITY];
+    private byte[] lodTier = new byte[INITIAL_CAPACITY];
+
+    // Last state sent to the API
+    private String[] sentNames = new String[INITIAL_CAPACITY];
+    private double[] sentX = new double[INITIAL_CAPACITY];
+    private double[] sentY = new double[INITIAL_CAPACITY];
+    private double[] sentZ = new double[INITIAL_CAPACITY];
+    private int[] sentWorld = new int[INITIAL_CAPACITY];
+    private double[] sentVX = new double[INITIAL_CAPACITY];
+    private double[] sentVY = new double[INITIAL_CAPACITY];
+    private double[] sentVZ = new double[INITIAL_CAPACITY];
+    private long[] sentTime = new long[INITIAL_CAPACITY];
+
+    // Time of the most recent capture, used as the timestamp of outgoing payloads
+    private long latestSampleTime = 0;
+
+    private final BitSet occupied = new BitSet();
+    private final BitSet positioned = new BitSet();
+    private final BitSet sent = new BitSet();
+    private final BitSet sentPositioned = new BitSet();
+    private final BitSet dirty = new BitSet();
+    private int dirtyCount = 0;
+
+    // Dirty slots left out of the last send (proximity priority), dirty again on the next one
+    private final BitSet deferred = new BitSet();
+
+    // Positions are compared quantized (same grid as the encoders), so equal positions always compare equal.
+    // Volatile: world threads read it to skip players that did not move
+    private volatile PositionQuantizer quantizer = new PositionQuantizer(DEFAULT_POSITION_PRECISION);
+
+    private final PositionQuantizer coarseQuantizer = new PositionQuantizer(COARSE_POSITION_PRECISION);
+
+    // Clean slots below LOD_FINE that moved at fine precision: their tier must be re-evaluated
+    private final BitSet lodCandidates = new BitSet();
+    // Slots below LOD_FINE
+    private final BitSet lowDetail = new BitSet();
+
+    // Dead reckoning error bound used by change detection (0 = plain position compare)
+    private double deadReckoningErrorBound = 0;
+
+    // UUIDs of players the API knows about that left since the last send
+    private final List<String> removed = new ArrayList<>();
+
+    // World index table (world UUID strings are built once per world)
+    private final Map<UUID, Integer> worldIndexByUuid = new HashMap<>();
+    private final List<String> worldUuids = new ArrayList<>();
+    private final List<UUID> worldUuidValues = new ArrayList<>();
+    // Indices no slot references; they keep their world until recycled, so the world gets them back
+    private final BitSet retiredWorlds = new BitSet();
+    // Recycled indices, free for new worlds
+    private final BitSet freeWorlds = new BitSet();
+    private final BitSet referencedWorlds = new BitSet();
+
+    public int worldIndex(UUID worldUuid) {
+        Integer index = worldIndexByUuid.get(worldUuid);
+        if (index != null) {
+            retiredWorlds.clear(index);
+            return index;
+        }
+
+        index = freeWorlds.nextSetBit(0);
+        if (index >= 0) {
+            freeWorlds.clear(index);
+            worldUuids.set(index, worldUuid.toString());
+            worldUuidValues.set(index, worldUuid);
+        } else {
+            index = worldUuids.size();
+            worldUuids.add(worldUuid.toString());
+            worldUuidValues.add(worldUuid);
+        }
+        worldIndexByUuid.put(worldUuid, index);
+        return index;
+    }
+
+    /**
+     * Frees the indices of retired worlds (no player in them since the last
+     * {@link #removeUnseenSince}) for new worlds. Only call when no one still maps the old
+     * indices to their worlds: session IDs use world indices, so with compact IDs this
+     * waits for a new session.
+     */
+    public void recycleWorldIndices() {
+        for (int index = retiredWorlds.nextSetBit(0); index >= 0; index = retiredWorlds.nextSetBit(index + 1)) {
+            worldIndexByUuid.remove(worldUuidValues.get(index));
+            worldUuids.set(index, null);
+            worldUuidValues.set(index, null);
+            freeWorlds.set(index);
+        }
+        retiredWorlds.clear();
+    }
+
+    public String getWorldUuid(int worldIndex) {
+        return worldUuids.get(worldIndex);
+    }
+
+    public UUID getWorldUuidValue(int worldIndex) {
+        return worldUuidValues.get(worldIndex);
+    }
+
+    /**
+     * Records the state of a player for the given tick, allocating a slot if needed
+     *
+     * @param time capture time in milliseconds
+     */
+    public int capture(UUID uuid, String name, int worldIndex, boolean hasPosition,
+                       double px, double py, double pz, long tick, long time) {
+        Integer existing = slotByUuid.get(uuid);
+        int slot = existing != null ? existing : allocate(uuid);
+
+        if (hasPosition) {
+            boolean continuous = existing != null && positioned.get(slot) &&
+                    world[slot] == worldIndex && time > sampleTime[slot];
+
+            if (continuous) {
+                double seconds = (time - sampleTime[slot]) / 1000.0;
+                vx[slot] = (px - x[slot]) / seconds;
+                vy[slot] = (py - y[slot]) / seconds;
+                vz[slot] = (pz - z[slot]) / seconds;
+            } else {
+                clearVelocity(slot);
+            }
+
+            x[slot] = px;
+            y[slot] = py;
+            z[slot] = pz;
+            positioned.set(slot);
+        } else {
+            clearVelocity(slot);
+            positioned.clear(slot);
+        }
+
+        names[slot] = name;
+        world[slot] = worldIndex;
+        seenTick[slot] = tick;
+        sampleTime[slot] = time;
+        latestSampleTime = Math.max(latestSampleTime, time);
+
+        refreshDirty(slot);
+        return slot;
+    }
+
+    /**
+     * Marks an already tracked player as present in the given tick without reading
+     * its position (collection spread across ticks)
+     *
+     * @return false if the player is not tracked yet or is tracked in another world,
+     * in which case its position must be captured
+     */
+    public boolean touch(UUID uuid, int worldIndex, long tick) {
+        Integer slot = slotByUuid.get(uuid);
+        if (slot == null) {
+            return false;
+        }
+
+        // Keep a world changer until its position in the new world is read
+        seenTick[slot] = tick;
+        return world[slot] == worldIndex;
+    }
+
+    /**
+     * Stops players that were not captured since the given tick. Used by
+     * event-driven tracking, where players that stand still are not captured.
+     */
+    public void settleIdleSince(long tick, long time) {
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            if (seenTick[slot] < tick && (vx[slot] != 0 || vy[slot] != 0 || vz[slot] != 0)) {
+                clearVelocity(slot);
+                sampleTime[slot] = time;
+                refreshDirty(slot);
+            }
+        }
+    }
+
+    private void clearVelocity(int slot) {
+        vx[slot] = 0;
+        vy[slot] = 0;
+        vz[slot] = 0;
+    }
+
+    /**
+     * Frees the slot of a player, if tracked
+     */
+    public void remove(UUID uuid) {
+        Integer slot = slotByUuid.get(uuid);
+        if (slot != null) {
+            release(slot);
+        }
+    }
+
+    /**
+     * Frees every slot not captured in the given tick or later, and retires the world
+     * indices no remaining slot references (see {@link #recycleWorldIndices})
+     */
+    public void removeUnseenSince(long tick) {
+        referencedWorlds.clear();
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            if (seenTick[slot] < tick) {
+                release(slot);
+            } else {
+                referencedWorlds.set(world[slot]);
+            }
+        }
+
+        retiredWorlds.set(0, worldUuids.size());
+        retiredWorlds.andNot(referencedWorlds);
+        retiredWorlds.andNot(freeWorlds);
+    }
+
+    /**
+     * Prepares the dirty set for a send: slots deferred by the previous send become dirty
+     * again (if still changed), and a new error bound re-evaluates every slot
+     *
+     * @param deadReckoningErrorBound if positive, a position only counts as changed when it is
+     *                                farther than this from the one extrapolated from the last
+     *                                sent position and velocity
+     * @return number of dirty slots
+     */
+    public int prepareChanges(double deadReckoningErrorBound) {
+        if (deadReckoningErrorBound != this.deadReckoningErrorBound) {
+            this.deadReckoningErrorBound = deadReckoningErrorBound;
+            for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+                refreshDirty(slot);
+            }
+        }
+
+        for (int slot = deferred.nextSetBit(0); slot >= 0; slot = deferred.nextSetBit(slot + 1)) {
+            refreshDirty(slot);
+        }
+
+        return dirtyCount;
+    }
+
+    /**
+     * Sets the position precision (in blocks) used for change detection and encoding.
+     * A new precision re-evaluates every slot.
+     */
+    public void setPositionPrecision(double precision) {
+        PositionQuantizer next = new PositionQuantizer(precision);
+        if (next.getQuantumMillis() == quantizer.getQuantumMillis()) {
+            return;
+        }
+
+        quantizer = next;
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            refreshDirty(slot);
+        }
+    }
+
+    public PositionQuantizer getQuantizer() {
+        return quantizer;
+    }
+
+    /**
+     * Quantizer of the slot's level of detail, used to snap its position when encoding
+     */
+    public PositionQuantizer getQuantizer(int slot) {
+        return lodTier[slot] == LOD_FINE ? quantizer : coarseQuantizer;
+    }
+
+    public byte getLodTier(int slot) {
+        return lodTier[slot];
+    }
+
+    /**
+     * Sets the level of detail of a slot; its change threshold scales with it
+     * (coarse = whole blocks, presence = movements alone never make it dirty)
+     */
+    public void setLodTier(int slot, byte tier) {
+        lodCandidates.clear(slot);
+        if (lodTier[slot] != tier) {
+            lodTier[slot] = tier;
+            lowDetail.set(slot, tier != LOD_FINE);
+            refreshDirty(slot);
+        }
+    }
+
+    public int nextLodCandidate(int fromSlot) {
+        return lodCandidates.nextSetBit(fromSlot);
+    }
+
+    public int nextLowDetail(int fromSlot) {
+        return lowDetail.nextSetBit(fromSlot);
+    }
+
+    private void refreshDirty(int slot) {
+        deferred.clear(slot);
+
+        boolean changed = deadReckoningErrorBound > 0
+                ? hasDrifted(slot, deadReckoningErrorBound)
+                : hasChanged(slot, lodTier[slot]);
+
+        if (changed) {
+            lodCandidates.clear(slot);
+            setDirty(slot);
+        } else {
+            clearDirty(slot);
+            // Moved, but not enough for its tier: someone may have come closer
+            if (lodTier[slot] != LOD_FINE && hasChanged(slot, LOD_FINE)) {
+                lodCandidates.set(slot);
+            }
+        }
+    }
+
+    private void setDirty(int slot) {
+        if (!dirty.get(slot)) {
+            dirty.set(slot);
+            dirtyCount++;
+        }
+    }
+
+    private void clearDirty(int slot) {
+        if (dirty.get(slot)) {
+            dirty.clear(slot);
+            dirtyCount--;
+        }
+    }
+
+    private boolean hasDrifted(int slot, double errorBound) {
+        if (!sent.get(slot) || !Objects.equals(names[slot], sentNames[slot])) {
+            return true;
+        }
+
+        boolean hasPosition = positioned.get(slot);
+        if (hasPosition != sentPositioned.get(slot)) {
+            return true;
+        }
+
+        if (!hasPosition) {
+            return false;
+        }
+
+        if (world[slot] != sentWorld[slot]) {
+            return true;
+        }
+
+        if (lodTier[slot] == LOD_PRESENCE) {
+            return false;
+        }
+        if (lodTier[slot] == LOD_COARSE) {
+            errorBound = Math.max(errorBound, COARSE_POSITION_PRECISION);
+        }
+
+        double seconds = (sampleTime[slot] - sentTime[slot]) / 1000.0;
+        double dx = sentX[slot] + sentVX[slot] * seconds - x[slot];
+        double dy = sentY[slot] + sentVY[slot] * seconds - y[slot];
+        double dz = sentZ[slot] + sentVZ[slot] * seconds - z[slot];
+
+        return dx * dx + dy * dy + dz * dz > errorBound * errorBound;
+    }
+
+    private boolean hasChanged(int slot, byte tier) {
+        if (!sent.get(slot) || !Objects.equals(names[slot], sentNames[slot])) {
+            return true;
+        }
+
+        boolean hasPosition = positioned.get(slot);
+        if (hasPosition != sentPositioned.get(slot)) {
+            return true;
+        }
+
+        if (!hasPosition) {
+            return false;
+        }
+        if (world[slot] != sentWorld[slot]) {
+            return true;
+        }
+        if (tier == LOD_PRESENCE) {
+            return false;
+        }
+
+        PositionQuantizer grid = tier == LOD_FINE ? quantizer : coarseQuantizer;
+        return grid.quantize(x[slot]) != grid.quantize(sentX[slot]) ||
+                grid.quantize(y[slot]) != grid.quantize(sentY[slot]) ||
+                grid.quantize(z[slot]) != grid.quantize(sentZ[slot]);
+    }
+
+    /**
+     * Whether the only pending change of this slot is a movement within the same world,
+     * which may wait for a later update (proximity priority)
+     */
+    public boolean isMovementOnly(int slot) {
+        return sent.get(slot) &&
+                Objects.equals(names[slot], sentNames[slot]) &&
+                positioned.get(slot) && sentPositioned.get(slot) &&
+                world[slot] == sentWorld[slot];
+    }
+
+    /**
+     * Leaves a dirty slot out of the next update; it is detected again on the next tick
+     * because it is compared with its last sent state
+     */
+    public void deferDirty(int slot) {
+        clearDirty(slot);
+        deferred.set(slot);
+    }
+
+    /**
+     * Whether the API still needs this player's name (never sent or renamed)
+     */
+    public boolean needsName(int slot) {
+        return !sent.get(slot) || !Objects.equals(names[slot], sentNames[slot]);
+    }
+
+    public void markSent(int slot) {
+        sentNames[slot] = names[slot];
+        sentX[slot] = x[slot];
+        sentY[slot] = y[slot];
+        sentZ[slot] = z[slot];
+        sentWorld[slot] = world[slot];
+        sentVX[slot] = vx[slot];
+        sentVY[slot] = vy[slot];
+        sentVZ[slot] = vz[slot];
+        sentTime[slot] = sampleTime[slot];
+        sentPositioned.set(slot, positioned.get(slot));
+        sent.set(slot);
+        clearDirty(slot);
+        lodCandidates.clear(slot);
+    }
+
+    public void markAllSent() {
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            markSent(slot);
+        }
+        removed.clear();
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public void clearRemoved() {
+        removed.clear();
+    }
+
+    public int nextOccupied(int fromSlot) {
+        return occupied.nextSetBit(fromSlot);
+    }
+
+    public int nextDirty(int fromSlot) {
+        return dirty.nextSetBit(fromSlot);
+    }
+
+    public int dirtyCount() {
+        return dirtyCount;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getUuid(int slot) {
+        return uuidStrings[slot];
+    }
+
+    public UUID getUuidValue(int slot) {
+        return uuids[slot];
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public boolean hasPosition(int slot) {
+        return positioned.get(slot);
+    }
+
+    public double getX(int slot) {
+        return x[slot];
+    }
+
+    public double getY(int slot) {
+        return y[slot];
+    }
+
+    public double getZ(int slot) {
+        return z[slot];
+    }
+
+    public int getWorld(int slot) {
+        return world[slot];
+    }
+
+    public double getVelocityX(int slot) {
+        return vx[slot];
+    }
+
+    public double getVelocityY(int slot) {
+        return vy[slot];
+    }
+
+    public double getVelocityZ(int slot) {
+        return vz[slot];
+    }
+
+    public long getLatestSampleTime() {
+        return latestSampleTime;
+    }
+
+    private int allocate(UUID uuid) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = highestSlot++;
+            ensureCapacity(highestSlot);
+        }
+
+        uuids[slot] = uuid;
+        uuidStrings[slot] = uuid.toString();
+        slotByUuid.put(uuid, slot);
+        // Left and came back before the next send: it is in the frame again, not removed
+        removed.remove(uuidStrings[slot]);
+        occupied.set(slot);
+        size++;
+        return slot;
+    }
+
+    private void release(int slot) {
+        if (sent.get(slot)) {
+            removed.add(uuidStrings[slot]);
+        }
+
+        slotByUuid.remove(uuids[slot]);
+        uuids[slot] = null;
+        uuidStrings[slot] = null;
+        names[slot] = null;
+        sentNames[slot] = null;
+
+        occupied.clear(slot);
+        positioned.clear(slot);
+        sent.clear(slot);
+        sentPositioned.clear(slot);
+        clearDirty(slot);
+        deferred.clear(slot);
+        lodCandidates.clear(slot);
+        lowDetail.clear(slot);
+        lodTier[slot] = LOD_FINE;
+
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= uuids.length) {
+            return;
+        }
+
+        int capacity = Math.max(required, uuids.length * 2);
+        uuids = Arrays.copyOf(uuids, capacity);
+        uuidStrings = Arrays.copyOf(uuidStrings, capacity);
+        names = Arrays.copyOf(names, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        world = Arrays.copyOf(world, capacity);
+        seenTick = Arrays.copyOf(seenTick, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        vz = Arrays.copyOf(vz, capacity);
+        sampleTime = Arrays.copyOf(sampleTime, capacity);
+        sentNames = Arrays.copyOf(sentNames, capacity);
+        sentX = Arrays.copyOf(sentX, capacity);
+        sentY = Arrays.copyOf(sentY, capacity);
+        sentZ = Arrays.copyOf(sentZ, capacity);
+        sentWorld = Arrays.copyOf(sentWorld, capacity);
+        sentVX = Arrays.copyOf(sentVX, capacity);
+        sentVY = Arrays.copyOf(sentVY, capacity);
+        sentVZ = Arrays.copyOf(sentVZ, capacity);
+        sentTime = Arrays.copyOf(sentTime, capacity);
+        lodTier = Arrays.copyOf(lodTier, capacity);
+    }
+}
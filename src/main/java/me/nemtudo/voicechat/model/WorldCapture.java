@@ -0,0 +1,101 @@
+package me.nemtudo.voicechat.model;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Reusable buffer filled by a world thread with the players of that world.
+ * Only touched by its world thread, so it needs no synchronization.
+ * Presence-only entries mark players whose position was not read in this
+ * collection (collection spread across ticks); they keep their last position.
+ */
+public class WorldCapture {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private UUID[] uuids = new UUID[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private boolean[] positioned = new boolean[INITIAL_CAPACITY];
+    private boolean[] presenceOnly = new boolean[INITIAL_CAPACITY];
+    private double[] x = new double[INITIAL_CAPACITY];
+    private double[] y = new double[INITIAL_CAPACITY];
+    private double[] z = new double[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // Tracking tick this capture was filled for
+    private long epoch = -1;
+
+    public void clear(long epoch) {
+        Arrays.fill(uuids, 0, size, null);
+        Arrays.fill(names, 0, size, null);
+        size = 0;
+        this.epoch = epoch;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public void add(UUID uuid, String name, boolean hasPosition, double px, double py, double pz) {
+        if (size == uuids.length) {
+            grow();
+        }
+
+        uuids[size] = uuid;
+        names[size] = name;
+        positioned[size] = hasPosition;
+        presenceOnly[size] = false;
+        x[size] = px;
+        y[size] = py;
+        z[size] = pz;
+        size++;
+    }
+
+    public void addPresence(UUID uuid, String name) {
+        add(uuid, name, false, 0, 0, 0);
+        presenceOnly[size - 1] = true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public UUID getUuid(int index) {
+        return uuids[index];
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public boolean isPresenceOnly(int index) {
+        return presenceOnly[index];
+    }
+
+    public boolean hasPosition(int index) {
+        return positioned[index];
+    }
+
+    public double getX(int index) {
+        return x[index];
+    }
+
+    public double getY(int index) {
+        return y[index];
+    }
+
+    public double getZ(int index) {
+        return z[index];
+    }
+
+    private void grow() {
+        int capacity = uuids.length * 2;
+        uuids = Arrays.copyOf(uuids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        positioned = Arrays.copyOf(positioned, capacity);
+        presenceOnly = Arrays.copyOf(presenceOnly, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+    }
+}
@@ -0,0 +1,67 @@
+package me.nemtudo.voicechat.network;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Deflate (zlib) compression of large outbound payloads with a preset dictionary.
+ * <p>
+ * The dictionary holds the structure and field names of the tracking payloads
+ * (position frames, neighbour and gain updates, id dictionary), so even the first
+ * players of a keyframe compress well. The backend must inflate with the same
+ * dictionary, identified by {@link #DICTIONARY_VERSION}; its Adler-32 also goes in
+ * the zlib header. Any change to the dictionary needs a new version.
+ * Not thread-safe: used only by the websocket writer thread.
+ */
+public class FrameCompressor {
+
+    public static final String ALGORITHM = "deflate";
+    public static final int DICTIONARY_VERSION = 1;
+
+    // Deflate prefers the nearest match, so the most repeated fragments come last
+    private static final byte[] DICTIONARY = String.join("",
+            "{\"players\":[{\"id\":0,\"uuid\":\"\",\"name\":\"\"}],\"worlds\":[{\"id\":0,\"uuid\":\"\"}]}",
+            "{\"seq\":0,\"keyframe\":true,\"changes\":[{\"uuid\":\"\",\"added\":[\"\"],\"removed\":[\"\"]}]}",
+            "{\"seq\":0,\"keyframe\":false,\"changes\":[{\"a\":\"\",\"b\":\"\",\"gain\":0.0}]}",
+            "{\"seq\":0,\"time\":0,\"playerCount\":0,\"players\":[",
+            "],\"removed\":[]}",
+            ",\"velocity\":{\"x\":0.00,\"y\":0.00,\"z\":0.00}",
+            "{\"uuid\":\"00000000-0000-0000-0000-000000000000\",\"name\":\"\"",
+            ",\"position\":{\"x\":0.00,\"y\":64.00,\"z\":0.00,\"world\":\"00000000-0000-0000-0000-000000000000\"}},",
+            "{\"id\":0,\"position\":{\"x\":0.00,\"y\":64.00,\"z\":0.00,\"world\":0}},",
+            "{\"id\":1,\"position\":{\"x\":-",
+            ",\"y\":",
+            ",\"z\":-"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private byte[] buffer = new byte[16 * 1024];
+
+    /**
+     * @return the compressed payload, or null if it would not be smaller than the input
+     */
+    public byte[] compress(byte[] input) {
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(input);
+        deflater.finish();
+
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length >= input.length) {
+                return null;
+            }
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+
+        return length < input.length ? Arrays.copyOf(buffer, length) : null;
+    }
+
+    public void end() {
+        deflater.end();
+    }
+}
@@ -0,0 +1,137 @@
+package me.nemtudo.voicechat.network;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Player frames sent but not yet acknowledged by the backend, for resuming a session.
+ * <p>
+ * Each entry keeps the encoded frame and the id dictionary announcements sent right
+ * before it, so a replay is exactly what the backend missed. Acknowledged frames are
+ * dropped, and so is everything before a keyframe (it replaces them), so the history
+ * holds at most one keyframe. When more than {@code capacity} frames are unacknowledged
+ * the oldest is dropped and the session can only be resumed from a later keyframe.
+ * Announcements are never lost: those of dropped frames move to the next kept one.
+ * Not thread-safe: used under the tracking service lock.
+ */
+public class FrameHistory {
+
+    private final int capacity;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    // Last sequence acknowledged by the backend in the current session chain
+    private long ackedSequence = 0;
+    // Highest sequence dropped without being acknowledged (0 = none)
+    private long lostSequence = 0;
+
+    public FrameHistory(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * @param announcement id dictionary announcement sent before the frame, or null
+     */
+    public void record(long sequence, boolean keyframe, String event, Object payload, String announcement) {
+        Entry entry = new Entry(sequence, keyframe, event, payload);
+        if (keyframe) {
+            // A replay starts at the last keyframe: the frames before it are never sent again
+            for (Entry replaced : entries) {
+                entry.announcements.addAll(replaced.announcements);
+            }
+            entries.clear();
+        }
+        if (announcement != null) {
+            entry.announcements.add(announcement);
+        }
+        entries.addLast(entry);
+
+        if (entries.size() > capacity) {
+            Entry dropped = entries.removeFirst();
+            lostSequence = Math.max(lostSequence, dropped.sequence);
+            entries.peekFirst().announcements.addAll(0, dropped.announcements);
+        }
+    }
+
+    public void acknowledge(long sequence) {
+        if (sequence <= ackedSequence) {
+            return;
+        }
+
+        ackedSequence = sequence;
+        while (!entries.isEmpty() && entries.peekFirst().sequence <= sequence) {
+            entries.removeFirst();
+        }
+    }
+
+    /**
+     * @return the sequence to resume from, or -1 if the frames after it are no longer available
+     */
+    public long resumableSequence() {
+        return canReplay() ? ackedSequence : -1;
+    }
+
+    /**
+     * Frames to send again after the acknowledged sequence, starting at the last keyframe
+     * if there is one (nothing before it is kept)
+     *
+     * @return the frames in order, or null if they are no longer available
+     */
+    public List<Entry> replay() {
+        return canReplay() ? new ArrayList<>(entries) : null;
+    }
+
+    /**
+     * Forgets everything (new session: the backend starts from a keyframe)
+     */
+    public void clear() {
+        entries.clear();
+        ackedSequence = 0;
+        lostSequence = 0;
+    }
+
+    private boolean canReplay() {
+        if (lostSequence <= ackedSequence) {
+            return true;
+        }
+        // Frames were lost after the acknowledged one: only a later keyframe can cover them,
+        // and a kept keyframe is always the first entry
+        return !entries.isEmpty() && entries.peekFirst().keyframe;
+    }
+
+    public static final class Entry {
+
+        private final long sequence;
+        private final boolean keyframe;
+        private final String event;
+        private final Object payload;
+        private final List<String> announcements = new ArrayList<>(1);
+
+        private Entry(long sequence, boolean keyframe, String event, Object payload) {
+            this.sequence = sequence;
+            this.keyframe = keyframe;
+            this.event = event;
+            this.payload = payload;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getEvent() {
+            return event;
+        }
+
+        public Object getPayload() {
+            return payload;
+        }
+
+        /**
+         * Id dictionary announcements to send before the frame, in order
+         */
+        public List<String> getAnnouncements() {
+            return announcements;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package me.nemtudo.voicechat.network;
+
+import java.util.List;
+
+/**
+ * Request payload with changes in the voice gain between pairs of players.
+ * A gain of 0 means the pair is no longer within voice range; in keyframes the
+ * changes contain every audible pair and replace the previous matrix.
+ */
+public class GainUpdateRequestPayload {
+
+    public final long seq;
+    public final boolean keyframe;
+    public final List<GainChange> changes;
+
+    public GainUpdateRequestPayload(long seq, boolean keyframe, List<GainChange> changes) {
+        this.seq = seq;
+        this.keyframe = keyframe;
+        this.changes = changes;
+    }
+
+    public static class GainChange {
+
+        public final String a;
+        public final String b;
+        public final float gain;
+
+        public GainChange(String a, String b, float gain) {
+            this.a = a;
+            this.b = b;
+            this.gain = gain;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package me.nemtudo.voicechat.network;
+
+import java.util.List;
+
+/**
+ * Request payload announcing compact session IDs of players and worlds
+ */
+public class IdDictionaryPayload {
+
+    public final List<PlayerEntry> players;
+    public final List<WorldEntry> worlds;
+
+    public IdDictionaryPayload(List<PlayerEntry> players, List<WorldEntry> worlds) {
+        this.players = players;
+        this.worlds = worlds;
+    }
+
+    public static class PlayerEntry {
+
+        public final int id;
+        public final String uuid;
+        public final String name;
+
+        public PlayerEntry(int id, String uuid, String name) {
+            this.id = id;
+            this.uuid = uuid;
+            this.name = name;
+        }
+    }
+
+    public static class WorldEntry {
+
+        public final int id;
+        public final String uuid;
+
+        public WorldEntry(int id, String uuid) {
+            this.id = id;
+            this.uuid = uuid;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package me.nemtudo.voicechat.network;
+
+import java.util.List;
+
+/**
+ * Request payload with changes in the audible neighbour set of each player
+ */
+public class NeighbourUpdateRequestPayload {
+
+    public final long seq;
+    public final boolean keyframe;
+    public final List<NeighbourChange> changes;
+
+    public NeighbourUpdateRequestPayload(long seq, boolean keyframe, List<NeighbourChange> changes) {
+        this.seq = seq;
+        this.keyframe = keyframe;
+        this.changes = changes;
+    }
+
+    public static class NeighbourChange {
+
+        public final String uuid;
+        public final List<String> added;
+        public final List<String> removed;
+
+        public NeighbourChange(String uuid, List<String> added, List<String> removed) {
+            this.uuid = uuid;
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+}
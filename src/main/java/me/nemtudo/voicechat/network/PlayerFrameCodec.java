@@ -0,0 +1,420 @@
+package me.nemtudo.voicechat.network;
+
+import me.nemtudo.voicechat.model.PlayerStateStore;
+import me.nemtudo.voicechat.utils.PositionQuantizer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binary encoding of server:players frames (socketApiVersion 3 and 4).
+ * <p>
+ * Layout (varint = unsigned LEB128, float = IEEE 754 float32 big-endian, uuid = 16 bytes):
+ * <pre>
+ * byte    format version (2)
+ * byte    frame type (0 = keyframe, 1 = delta)
+ * varint  seq
+ * varint  time (server capture time, epoch milliseconds)
+ * varint  playerCount (total tracked players)
+ * varint  worldCount, then worldCount * uuid        (frame-local world table)
+ * varint  entryCount, then for each entry:
+ *           uuid    player
+ *           byte    flags (1 = has position, 2 = has name, 4 = has velocity)
+ *           [varint length + UTF-8 name]           if flags &amp; 2
+ *           [varint world, float x, float y, float z] if flags &amp; 1
+ *           [float vx, float vy, float vz]          if flags &amp; 4 (blocks/second)
+ * varint  removedCount, then removedCount * uuid    (always 0 in keyframes)
+ * </pre>
+ * Names are only sent in keyframes and for players that are new or renamed.
+ * <p>
+ * Format version 3 (compact IDs negotiated) replaces UUIDs with the session IDs
+ * announced on server:id_dictionary:
+ * <pre>
+ * byte    format version (3)
+ * byte    frame type, varint seq, varint time, varint playerCount   (as above)
+ * varint  entryCount, then for each entry:
+ *           varint  player ID
+ *           byte    flags (1 = has position, 4 = has velocity; names are in the dictionary)
+ *           [varint world ID, float x, float y, float z] if flags &amp; 1
+ *           [float vx, float vy, float vz]             if flags &amp; 4
+ * varint  removedCount, then removedCount * varint player ID
+ * </pre>
+ * Format versions 4 (layout of version 2) and 5 (layout of version 3) carry quantized
+ * positions (socketApiVersion 4). Coordinates are integers in quanta (see
+ * {@link PositionQuantizer}) relative to an origin written once per world and frame,
+ * the centre of that world's positions in the frame, so nearby players need one or
+ * two bytes per axis:
+ * <pre>
+ * byte    format version (4 or 5)
+ * byte    frame type, varint seq, varint time, varint playerCount   (as above)
+ * varint  quantum (position precision in thousandths of a block)
+ * version 4: varint worldCount, then for each world:
+ *           uuid world, zigzag varint originX, originY, originZ
+ * version 5: varint worldCount, then for each world:
+ *           varint world ID, zigzag varint originX, originY, originZ
+ * entries and removed IDs as in version 2 (4) or 3 (5), with each position written as
+ *           [varint world, zigzag varint x - originX, y - originY, z - originZ]
+ * </pre>
+ * Not thread-safe: the write buffer is reused between frames.
+ */
+public class PlayerFrameCodec {
+
+    public static final byte FORMAT_VERSION = 2;
+    public static final byte COMPACT_FORMAT_VERSION = 3;
+    public static final byte QUANTIZED_FORMAT_VERSION = 4;
+    public static final byte QUANTIZED_COMPACT_FORMAT_VERSION = 5;
+    public static final byte FRAME_KEYFRAME = 0;
+    public static final byte FRAME_DELTA = 1;
+
+    public static final int FLAG_POSITION = 1;
+    public static final int FLAG_NAME = 2;
+    public static final int FLAG_VELOCITY = 4;
+
+    private byte[] buffer = new byte[4096];
+    private int length = 0;
+
+    // Frame-local world table: store world index -> frame world index
+    private final Map<Integer, Integer> frameWorlds = new HashMap<>();
+    private int[] frameWorldOrder = new int[8];
+    // Quantized bounds of each frame world's positions, then its origin (centre), per axis
+    private long[] worldMin = new long[8 * 3];
+    private long[] worldMax = new long[8 * 3];
+    private final long[] position = new long[3];
+
+    // Quantizer of the frame being written, null for float32 positions
+    private PositionQuantizer quantizer;
+
+    /**
+     * @param ids       session IDs to write instead of UUIDs and names, or null
+     * @param quantized write quantized positions relative to a per-world origin instead of float32
+     */
+    public byte[] encodeKeyframe(PlayerStateStore store, long seq, boolean withVelocity,
+                                 SessionIdDictionary ids, boolean quantized) {
+        quantizer = quantized ? store.getQuantizer() : null;
+
+        if (ids != null) {
+            beginFrame(formatVersion(true), FRAME_KEYFRAME, seq, store.getLatestSampleTime(), store.size());
+
+            writeOriginTable(store, true);
+
+            writeVarint(store.size());
+            for (int slot = store.nextOccupied(0); slot >= 0; slot = store.nextOccupied(slot + 1)) {
+                writeCompactEntry(store, slot, withVelocity, ids);
+            }
+
+            writeVarint(0);
+            return toByteArray();
+        }
+
+        beginFrame(formatVersion(false), FRAME_KEYFRAME, seq, store.getLatestSampleTime(), store.size());
+
+        collectWorlds(store, true);
+        writeWorldTable(store);
+
+        writeVarint(store.size());
+        for (int slot = store.nextOccupied(0); slot >= 0; slot = store.nextOccupied(slot + 1)) {
+            writeEntry(store, slot, true, withVelocity);
+        }
+
+        writeVarint(0);
+        return toByteArray();
+    }
+
+    /**
+     * @param ids       session IDs to write instead of UUIDs and names, or null
+     * @param quantized write quantized positions relative to a per-world origin instead of float32
+     */
+    public byte[] encodeDelta(PlayerStateStore store, long seq, boolean withVelocity,
+                              SessionIdDictionary ids, boolean quantized) {
+        quantizer = quantized ? store.getQuantizer() : null;
+
+        if (ids != null) {
+            beginFrame(formatVersion(true), FRAME_DELTA, seq, store.getLatestSampleTime(), store.size());
+
+            writeOriginTable(store, false);
+
+            writeVarint(store.dirtyCount());
+            for (int slot = store.nextDirty(0); slot >= 0; slot = store.nextDirty(slot + 1)) {
+                writeCompactEntry(store, slot, withVelocity, ids);
+            }
+
+            writeRemovedIds(store.getRemoved(), ids);
+            return toByteArray();
+        }
+
+        beginFrame(formatVersion(false), FRAME_DELTA, seq, store.getLatestSampleTime(), store.size());
+
+        collectWorlds(store, false);
+        writeWorldTable(store);
+
+        writeVarint(store.dirtyCount());
+        for (int slot = store.nextDirty(0); slot >= 0; slot = store.nextDirty(slot + 1)) {
+            writeEntry(store, slot, store.needsName(slot), withVelocity);
+        }
+
+        List<String> removed = store.getRemoved();
+        writeVarint(removed.size());
+        for (String uuid : removed) {
+            writeUuid(UUID.fromString(uuid));
+        }
+        return toByteArray();
+    }
+
+    private void beginFrame(byte formatVersion, byte frameType, long seq, long time, int playerCount) {
+        length = 0;
+        writeByte(formatVersion);
+        writeByte(frameType);
+        writeVarint(seq);
+        writeVarint(time);
+        writeVarint(playerCount);
+
+        if (quantizer != null) {
+            writeVarint(quantizer.getQuantumMillis());
+        }
+    }
+
+    private byte formatVersion(boolean compactIds) {
+        if (quantizer != null) {
+            return compactIds ? QUANTIZED_COMPACT_FORMAT_VERSION : QUANTIZED_FORMAT_VERSION;
+        }
+        return compactIds ? COMPACT_FORMAT_VERSION : FORMAT_VERSION;
+    }
+
+    private void collectWorlds(PlayerStateStore store, boolean allPlayers) {
+        frameWorlds.clear();
+
+        for (int slot = next(store, 0, allPlayers); slot >= 0; slot = next(store, slot + 1, allPlayers)) {
+            if (!store.hasPosition(slot)) {
+                continue;
+            }
+
+            Integer frameIndex = frameWorlds.get(store.getWorld(slot));
+            if (frameIndex == null) {
+                frameIndex = addFrameWorld(store.getWorld(slot));
+            }
+
+            if (quantizer != null) {
+                quantizePosition(store, slot);
+                for (int axis = 0; axis < 3; axis++) {
+                    int i = frameIndex * 3 + axis;
+                    worldMin[i] = Math.min(worldMin[i], position[axis]);
+                    worldMax[i] = Math.max(worldMax[i], position[axis]);
+                }
+            }
+        }
+
+        if (quantizer != null) {
+            // worldMin becomes the origin: the centre keeps the largest offset smallest
+            for (int i = 0; i < frameWorlds.size() * 3; i++) {
+                worldMin[i] += (worldMax[i] - worldMin[i]) / 2;
+            }
+        }
+    }
+
+    private int addFrameWorld(int world) {
+        int frameIndex = frameWorlds.size();
+        if (frameIndex == frameWorldOrder.length) {
+            frameWorldOrder = Arrays.copyOf(frameWorldOrder, frameIndex * 2);
+            worldMin = Arrays.copyOf(worldMin, frameIndex * 2 * 3);
+            worldMax = Arrays.copyOf(worldMax, frameIndex * 2 * 3);
+        }
+        frameWorldOrder[frameIndex] = world;
+        frameWorlds.put(world, frameIndex);
+
+        Arrays.fill(worldMin, frameIndex * 3, frameIndex * 3 + 3, Long.MAX_VALUE);
+        Arrays.fill(worldMax, frameIndex * 3, frameIndex * 3 + 3, Long.MIN_VALUE);
+        return frameIndex;
+    }
+
+    private static int next(PlayerStateStore store, int fromSlot, boolean allPlayers) {
+        return allPlayers ? store.nextOccupied(fromSlot) : store.nextDirty(fromSlot);
+    }
+
+    private void writeWorldTable(PlayerStateStore store) {
+        writeVarint(frameWorlds.size());
+        for (int i = 0; i < frameWorlds.size(); i++) {
+            writeUuid(store.getWorldUuidValue(frameWorldOrder[i]));
+            writeOrigin(i);
+        }
+    }
+
+    /**
+     * Compact frames reference worlds by ID, so only quantized ones need a table (of origins)
+     */
+    private void writeOriginTable(PlayerStateStore store, boolean allPlayers) {
+        if (quantizer == null) {
+            return;
+        }
+
+        collectWorlds(store, allPlayers);
+        writeVarint(frameWorlds.size());
+        for (int i = 0; i < frameWorlds.size(); i++) {
+            writeVarint(frameWorldOrder[i]);
+            writeOrigin(i);
+        }
+    }
+
+    private void writeOrigin(int frameIndex) {
+        if (quantizer == null) {
+            return;
+        }
+
+        for (int axis = 0; axis < 3; axis++) {
+            writeZigzag(worldMin[frameIndex * 3 + axis]);
+        }
+    }
+
+    private void writeEntry(PlayerStateStore store, int slot, boolean withName, boolean withVelocity) {
+        writeUuid(store.getUuidValue(slot));
+
+        boolean hasPosition = store.hasPosition(slot);
+        boolean hasVelocity = hasPosition && withVelocity;
+        writeByte((byte) ((hasPosition ? FLAG_POSITION : 0) | (withName ? FLAG_NAME : 0) | (hasVelocity ? FLAG_VELOCITY : 0)));
+
+        if (withName) {
+            writeString(store.getName(slot));
+        }
+
+        if (hasPosition) {
+            int frameIndex = frameWorlds.get(store.getWorld(slot));
+            writeVarint(frameIndex);
+            writePosition(store, slot, frameIndex);
+        }
+
+        if (hasVelocity) {
+            writeFloat((float) store.getVelocityX(slot));
+            writeFloat((float) store.getVelocityY(slot));
+            writeFloat((float) store.getVelocityZ(slot));
+        }
+    }
+
+    private void writeCompactEntry(PlayerStateStore store, int slot, boolean withVelocity, SessionIdDictionary ids) {
+        writeVarint(ids.playerId(store.getUuidValue(slot)));
+
+        boolean hasPosition = store.hasPosition(slot);
+        boolean hasVelocity = hasPosition && withVelocity;
+        writeByte((byte) ((hasPosition ? FLAG_POSITION : 0) | (hasVelocity ? FLAG_VELOCITY : 0)));
+
+        if (hasPosition) {
+            writeVarint(store.getWorld(slot));
+            writePosition(store, slot, quantizer != null ? frameWorlds.get(store.getWorld(slot)) : -1);
+        }
+
+        if (hasVelocity) {
+            writeFloat((float) store.getVelocityX(slot));
+            writeFloat((float) store.getVelocityY(slot));
+            writeFloat((float) store.getVelocityZ(slot));
+        }
+    }
+
+    /**
+     * @param frameIndex frame world of the slot, whose origin quantized positions are relative to
+     */
+    private void writePosition(PlayerStateStore store, int slot, int frameIndex) {
+        if (quantizer == null) {
+            // Snapped to the player's level of detail first
+            PositionQuantizer detail = store.getQuantizer(slot);
+            writeFloat((float) detail.snap(store.getX(slot)));
+            writeFloat((float) detail.snap(store.getY(slot)));
+            writeFloat((float) detail.snap(store.getZ(slot)));
+            return;
+        }
+
+        quantizePosition(store, slot);
+        for (int axis = 0; axis < 3; axis++) {
+            writeZigzag(position[axis] - worldMin[frameIndex * 3 + axis]);
+        }
+    }
+
+    /**
+     * Position of the slot snapped to its level of detail, in frame quanta, into {@link #position}
+     */
+    private void quantizePosition(PlayerStateStore store, int slot) {
+        PositionQuantizer detail = store.getQuantizer(slot);
+        position[0] = quantizer.quantize(detail.snap(store.getX(slot)));
+        position[1] = quantizer.quantize(detail.snap(store.getY(slot)));
+        position[2] = quantizer.quantize(detail.snap(store.getZ(slot)));
+    }
+
+    private void writeRemovedIds(List<String> removed, SessionIdDictionary ids) {
+        // Players announced in an earlier session are unknown to the backend
+        int count = 0;
+        for (String uuid : removed) {
+            if (ids.playerId(UUID.fromString(uuid)) >= 0) {
+                count++;
+            }
+        }
+
+        writeVarint(count);
+        for (String uuid : removed) {
+            int id = ids.playerId(UUID.fromString(uuid));
+            if (id >= 0) {
+                writeVarint(id);
+            }
+        }
+    }
+
+    /* ===================== primitives ===================== */
+
+    private void writeByte(byte value) {
+        ensureCapacity(1);
+        buffer[length++] = value;
+    }
+
+    private void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeZigzag(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(4);
+        buffer[length++] = (byte) (value >>> 24);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void writeFloat(float value) {
+        writeInt(Float.floatToIntBits(value));
+    }
+
+    private void writeUuid(UUID uuid) {
+        writeLong(uuid.getMostSignificantBits());
+        writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private void writeString(String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    private byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+}
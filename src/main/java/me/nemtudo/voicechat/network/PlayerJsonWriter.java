@@ -0,0 +1,216 @@
+package me.nemtudo.voicechat.network;
+
+import me.nemtudo.voicechat.model.PlayerStateStore;
+import me.nemtudo.voicechat.utils.PositionQuantizer;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Reflection-free JSON writer for server:players / server:players_delta.
+ * <p>
+ * Writes straight from the {@link PlayerStateStore} into a reused StringBuilder.
+ * Keyframe shape:
+ * <pre>
+ * {"seq":1,"time":1700000000000,"playerCount":1,"players":[{"uuid":"...","name":"...","position":{"x":1.000,"y":2.000,"z":3.000,"world":"..."}}]}
+ * </pre>
+ * Deltas add {@code "removed":["uuid", ...]} and only contain changed players.
+ * {@code time} is the server capture time in milliseconds; with velocities enabled each
+ * player also gets {@code "velocity":{"x":..,"y":..,"z":..}} in blocks per second.
+ * Positions are snapped to the precision of the player's level of detail and written
+ * with a fixed number of decimals. Players without position omit the field, and the
+ * (always empty) settings map is not written.
+ * <p>
+ * With a {@link SessionIdDictionary} (compact IDs negotiated) players are written as
+ * {@code {"id":3,"position":{...,"world":0}}}, without UUID and name, and removed
+ * players as IDs; the IDs are announced beforehand on server:id_dictionary.
+ * Not thread-safe: the buffer is reused between payloads.
+ */
+public class PlayerJsonWriter {
+
+    private static final long POSITION_SCALE = 1000;
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    // Pre-escaped name per slot, valid while the raw name is the same instance
+    private String[] escapedNames = new String[64];
+    private String[] escapedSources = new String[64];
+
+    /**
+     * @param ids session IDs to write instead of UUIDs and names, or null
+     */
+    public String writeKeyframe(PlayerStateStore store, long seq, boolean withVelocity, SessionIdDictionary ids) {
+        beginPayload(seq, store.getLatestSampleTime(), store.size());
+
+        boolean first = true;
+        for (int slot = store.nextOccupied(0); slot >= 0; slot = store.nextOccupied(slot + 1)) {
+            if (!first) {
+                out.append(',');
+            }
+            writePlayer(store, slot, withVelocity, ids);
+            first = false;
+        }
+
+        out.append("]}");
+        return out.toString();
+    }
+
+    /**
+     * @param ids session IDs to write instead of UUIDs and names, or null
+     */
+    public String writeDelta(PlayerStateStore store, long seq, boolean withVelocity, SessionIdDictionary ids) {
+        beginPayload(seq, store.getLatestSampleTime(), store.size());
+
+        boolean first = true;
+        for (int slot = store.nextDirty(0); slot >= 0; slot = store.nextDirty(slot + 1)) {
+            if (!first) {
+                out.append(',');
+            }
+            writePlayer(store, slot, withVelocity, ids);
+            first = false;
+        }
+
+        out.append("],\"removed\":[");
+
+        first = true;
+        for (String uuid : store.getRemoved()) {
+            if (ids == null) {
+                if (!first) {
+                    out.append(',');
+                }
+                out.append('"').append(uuid).append('"');
+                first = false;
+                continue;
+            }
+
+            // Players announced in an earlier session are unknown to the backend
+            int id = ids.playerId(UUID.fromString(uuid));
+            if (id >= 0) {
+                if (!first) {
+                    out.append(',');
+                }
+                out.append(id);
+                first = false;
+            }
+        }
+
+        out.append("]}");
+        return out.toString();
+    }
+
+    private void beginPayload(long seq, long time, int playerCount) {
+        out.setLength(0);
+        out.append("{\"seq\":").append(seq)
+                .append(",\"time\":").append(time)
+                .append(",\"playerCount\":").append(playerCount)
+                .append(",\"players\":[");
+    }
+
+    private void writePlayer(PlayerStateStore store, int slot, boolean withVelocity, SessionIdDictionary ids) {
+        if (ids != null) {
+            out.append("{\"id\":").append(ids.playerId(store.getUuidValue(slot)));
+        } else {
+            // UUID strings are hex and dashes only, no escaping needed
+            out.append("{\"uuid\":\"").append(store.getUuid(slot))
+                    .append("\",\"name\":\"").append(escapedName(slot, store.getName(slot)))
+                    .append('"');
+        }
+
+        if (store.hasPosition(slot)) {
+            PositionQuantizer quantizer = store.getQuantizer(slot);
+            out.append(",\"position\":{\"x\":");
+            writeFixed(quantizer.snap(store.getX(slot)));
+            out.append(",\"y\":");
+            writeFixed(quantizer.snap(store.getY(slot)));
+            out.append(",\"z\":");
+            writeFixed(quantizer.snap(store.getZ(slot)));
+            if (ids != null) {
+                out.append(",\"world\":").append(store.getWorld(slot)).append('}');
+            } else {
+                out.append(",\"world\":\"").append(store.getWorldUuid(store.getWorld(slot))).append("\"}");
+            }
+
+            if (withVelocity) {
+                out.append(",\"velocity\":{\"x\":");
+                writeFixed(store.getVelocityX(slot));
+                out.append(",\"y\":");
+                writeFixed(store.getVelocityY(slot));
+                out.append(",\"z\":");
+                writeFixed(store.getVelocityZ(slot));
+                out.append('}');
+            }
+        }
+
+        out.append('}');
+    }
+
+    private void writeFixed(double value) {
+        if (!Double.isFinite(value)) {
+            value = 0;
+        }
+
+        long scaled = Math.round(value * POSITION_SCALE);
+        if (scaled < 0) {
+            out.append('-');
+            scaled = -scaled;
+        }
+
+        long fraction = scaled % POSITION_SCALE;
+        out.append(scaled / POSITION_SCALE).append('.');
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private String escapedName(int slot, String name) {
+        if (name == null) {
+            return "";
+        }
+
+        if (slot >= escapedNames.length) {
+            int capacity = Math.max(slot + 1, escapedNames.length * 2);
+            escapedNames = Arrays.copyOf(escapedNames, capacity);
+            escapedSources = Arrays.copyOf(escapedSources, capacity);
+        }
+
+        if (escapedSources[slot] != name) {
+            escapedSources[slot] = name;
+            escapedNames[slot] = escape(name);
+        }
+        return escapedNames[slot];
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = null;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                case '\t' -> "\\t";
+                default -> c < 0x20 || c == 0x2028 || c == 0x2029 ? String.format("\\u%04x", (int) c) : null;
+            };
+
+            if (replacement == null) {
+                if (escaped != null) {
+                    escaped.append(c);
+                }
+                continue;
+            }
+
+            if (escaped == null) {
+                escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            escaped.append(replacement);
+        }
+
+        return escaped != null ? escaped.toString() : value;
+    }
+}
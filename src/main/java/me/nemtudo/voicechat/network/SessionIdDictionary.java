@@ -0,0 +1,110 @@
+package me.nemtudo.voicechat.network;
+
+import me.nemtudo.voicechat.model.PlayerStateStore;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Compact IDs of players and worlds for the current websocket session.
+ * <p>
+ * Players get a small integer ID announced once on server:id_dictionary together with
+ * their UUID and name (again when renamed); position frames then only carry the ID.
+ * IDs are never reused within a session, so a late frame can never refer to the wrong
+ * player. Worlds use the store's world index, which is already small and is not given
+ * to another world while this session may still refer to it.
+ * Everything is announced again after {@link #reset()} (new session).
+ * Not thread-safe: used under the tracking service lock.
+ */
+public class SessionIdDictionary {
+
+    private final Map<UUID, Integer> playerIds = new HashMap<>();
+    private final Map<UUID, String> announcedNames = new HashMap<>();
+    private final BitSet announcedWorlds = new BitSet();
+    private int nextPlayerId = 0;
+
+    public void reset() {
+        playerIds.clear();
+        announcedNames.clear();
+        announcedWorlds.clear();
+        nextPlayerId = 0;
+    }
+
+    /**
+     * Assigns IDs to the players about to be written and collects what the backend does not know yet
+     *
+     * @param allPlayers true for keyframes (every player), false for deltas (dirty players)
+     * @return the announcement, or null if there is nothing new
+     */
+    public IdDictionaryPayload prepare(PlayerStateStore store, boolean allPlayers) {
+        List<IdDictionaryPayload.PlayerEntry> players = null;
+        List<IdDictionaryPayload.WorldEntry> worlds = null;
+
+        for (int slot = next(store, 0, allPlayers); slot >= 0; slot = next(store, slot + 1, allPlayers)) {
+            UUID uuid = store.getUuidValue(slot);
+            Integer id = playerIds.get(uuid);
+            if (id == null) {
+                id = nextPlayerId++;
+                playerIds.put(uuid, id);
+            }
+
+            String name = store.getName(slot);
+            if (!announcedNames.containsKey(uuid) || !Objects.equals(announcedNames.get(uuid), name)) {
+                announcedNames.put(uuid, name);
+                if (players == null) {
+                    players = new ArrayList<>();
+                }
+                players.add(new IdDictionaryPayload.PlayerEntry(id, store.getUuid(slot), name));
+            }
+
+            int world = store.getWorld(slot);
+            if (store.hasPosition(slot) && !announcedWorlds.get(world)) {
+                announcedWorlds.set(world);
+                if (worlds == null) {
+                    worlds = new ArrayList<>();
+                }
+                worlds.add(new IdDictionaryPayload.WorldEntry(world, store.getWorldUuid(world)));
+            }
+        }
+
+        if (players == null && worlds == null) {
+            return null;
+        }
+        return new IdDictionaryPayload(
+                players != null ? players : List.of(),
+                worlds != null ? worlds : List.of()
+        );
+    }
+
+    /**
+     * Whether a world index was announced in this session, so world indices must not be reused
+     */
+    public boolean hasAnnouncedWorlds() {
+        return !announcedWorlds.isEmpty();
+    }
+
+    /**
+     * @return the session ID of the player, or -1 if it was never announced in this session
+     */
+    public int playerId(UUID uuid) {
+        Integer id = playerIds.get(uuid);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Forgets a player whose removal was already written (its ID is not reused)
+     */
+    public void release(UUID uuid) {
+        playerIds.remove(uuid);
+        announcedNames.remove(uuid);
+    }
+
+    private static int next(PlayerStateStore store, int fromSlot, boolean allPlayers) {
+        return allPlayers ? store.nextOccupied(fromSlot) : store.nextDirty(fromSlot);
+    }
+}
@@ -11,16 +11,29 @@ import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import me.nemtudo.voicechat.VoiceChat;
-import me.nemtudo.voicechat.model.PlayerState;
-import me.nemtudo.voicechat.model.Position;
-import me.nemtudo.voicechat.network.PlayerUpdateRequestPayload;
+import me.nemtudo.voicechat.model.MovementSample;
+import me.nemtudo.voicechat.model.PlayerStateStore;
+import me.nemtudo.voicechat.model.WorldCapture;
+import me.nemtudo.voicechat.network.GainUpdateRequestPayload;
+import me.nemtudo.voicechat.network.GainUpdateRequestPayload.GainChange;
+import me.nemtudo.voicechat.network.FrameHistory;
+import me.nemtudo.voicechat.network.IdDictionaryPayload;
+import me.nemtudo.voicechat.network.NeighbourUpdateRequestPayload;
+import me.nemtudo.voicechat.network.NeighbourUpdateRequestPayload.NeighbourChange;
+import me.nemtudo.voicechat.network.PlayerFrameCodec;
+import me.nemtudo.voicechat.network.PlayerJsonWriter;
+import me.nemtudo.voicechat.network.SessionIdDictionary;
+import me.nemtudo.voicechat.utils.SpatialHashGrid;
+import me.nemtudo.voicechat.websocket.ConnectionState;
+import me.nemtudo.voicechat.websocket.OutboundScheduler;
 import me.nemtudo.voicechat.websocket.WebSocketManager;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service responsible for tracking player positions and states
@@ -29,17 +42,93 @@ public class PlayerTrackingService {
 
     private final HytaleLogger LOGGER;
 
-    private static final long TRACKING_INTERVAL_SECONDS = 1;
+    // Lower bound for the configurable tracking interval
+    private static final long MIN_TRACKING_INTERVAL_MILLIS = 50;
+    private static final long TRACKING_START_DELAY_MILLIS = 5000;
+    // Log only one in this many tick timeouts
+    private static final long TIMEOUT_LOG_INTERVAL = 100;
+    // Full snapshot (keyframe) interval; deltas are sent in between when enabled
     private static final long FORCE_UPDATE_INTERVAL_MINUTES = 3;
+    // Unacknowledged player frames kept for resuming a session
+    private static final int RESUME_HISTORY_FRAMES = 64;
+
+    private static final String PLAYERS_EVENT = "server:players";
+    private static final String PLAYERS_DELTA_EVENT = "server:players_delta";
+    private static final String NEIGHBOURS_EVENT = "server:player_neighbours";
+    private static final String ID_DICTIONARY_EVENT = "server:id_dictionary";
+    private static final String GAINS_EVENT = "server:voice_gains";
 
     private final VoiceChat plugin;
     private final WebSocketManager wsManager;
 
-    // Thread-safe snapshot of current player states
-    private final Map<String, PlayerState> currentStates = new ConcurrentHashMap<>();
+    // Current and last sent state of every tracked player (guarded by this)
+    private final PlayerStateStore store = new PlayerStateStore();
+
+    // Reusable capture buffer per world, filled by that world's thread and merged by the
+    // sender once the tick completes (the next tick only starts after that)
+    private final Map<UUID, WorldCapture> worldCaptures = new ConcurrentHashMap<>();
+
+    // Collection time budget per world, only touched by that world's thread
+    private final Map<UUID, WorldCollectionBudget> worldBudgets = new ConcurrentHashMap<>();
+
+    // Players whose position must be read on the next collection regardless of their slice
+    // (new players and world changers)
+    private final Set<UUID> pendingFullCapture = ConcurrentHashMap.newKeySet();
+
+    // Event-driven tracking: latest sample per player and the players that moved since the last tick
+    private final Map<UUID, MovementSample> movementSamples = new ConcurrentHashMap<>();
+    private final Queue<MovementSample> movedPlayers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong trackingTick = new AtomicLong();
+
+    // Polling tick in progress; a new tick is skipped while it has not completed
+    private volatile TrackingTickBarrier currentBarrier;
+    // Worlds whose collection task has not run yet (possibly from an earlier tick)
+    private final Set<UUID> worldsInFlight = ConcurrentHashMap.newKeySet();
+
+    // Overrun counters
+    private final AtomicLong skippedTicks = new AtomicLong();
+    private final AtomicLong timedOutTicks = new AtomicLong();
+    private final AtomicLong lateWorldReports = new AtomicLong();
+
+    // Sequence number of the last message sent (keyframe or delta)
+    private long sequence = 0;
+
+    // Payload encoders with reused buffers (guarded by this)
+    private final PlayerJsonWriter jsonWriter = new PlayerJsonWriter();
+    // Binary encoder, used when the backend negotiated socketApiVersion 3
+    private final PlayerFrameCodec frameCodec = new PlayerFrameCodec();
+
+    // Compact player/world IDs of the current session, used when the backend negotiated them
+    private final SessionIdDictionary idDictionary = new SessionIdDictionary();
+
+    // Whether the backend accepted the current websocket session; while it has not,
+    // changes accumulate per player instead of being sent (volatile: cleared by the websocket)
+    private volatile boolean sessionActive = false;
+    // Whether a session was ever started, so there is something to resume
+    private boolean sessionStarted = false;
+    // Player frames not yet acknowledged, replayed when a session is resumed (guarded by this)
+    private final FrameHistory frameHistory = new FrameHistory(RESUME_HISTORY_FRAMES);
+
+    // Optional gain matrix, created on first use (guarded by this)
+    private VoiceAttenuationEngine attenuationEngine;
+    private boolean attenuationActive = false;
+    private long gainSequence = 0;
+
+    // Neighbour updates are a separate stream, so they don't leave gaps in the player sequence
+    private long neighbourSequence = 0;
 
-    // Last snapshot that was sent to API
-    private final Map<String, PlayerState> previousStates = new HashMap<>();
+    // Per-world spatial index (by world index), rebuilt from each snapshot (cell size = voice range)
+    private final Map<Integer, SpatialHashGrid> worldGrids = new HashMap<>();
+
+    // Per-player update rate and level of detail by distance to the nearest other player (guarded by this)
+    private final ProximityUpdatePriority updatePriority = new ProximityUpdatePriority();
+
+    // Audible neighbours of each player, replaced atomically after every computation
+    private volatile Map<String, Set<String>> neighbourSets = Map.of();
+
+    // Also the deadline for all worlds to report in a tick
+    private long trackingIntervalMillis;
 
     private ScheduledFuture<?> trackingTask;
     private ScheduledFuture<?> forceUpdateTask;
@@ -48,6 +137,13 @@ public class PlayerTrackingService {
         this.plugin = plugin;
         this.wsManager = plugin.getWebsocketManager();
         this.LOGGER = plugin.getLogger();
+
+        wsManager.setResumeOffer(this::resumableSequence);
+        wsManager.addStateListener(state -> {
+            if (state != ConnectionState.CONNECTED) {
+                sessionActive = false;
+            }
+        });
     }
 
     public void startTracking() {
@@ -62,31 +158,184 @@ public class PlayerTrackingService {
         if (forceUpdateTask != null) {
             forceUpdateTask.cancel(false);
         }
+        synchronized (this) {
+            if (attenuationEngine != null) {
+                attenuationEngine.shutdown();
+            }
+        }
     }
 
     public void forceUpdate() {
         consolidateAndSend(true);
     }
 
+    /**
+     * Called when the backend accepts a websocket session. A resumed session gets the
+     * frames it missed and a delta of the changes held back while disconnected; a new
+     * one starts over with new session IDs and a keyframe (announcing the IDs again if
+     * compact IDs are used).
+     *
+     * @param resumed whether the backend resumed the session from the offered sequence
+     */
+    public synchronized void onSessionStarted(boolean resumed) {
+        sessionActive = true;
+
+        if (resumed && resumeSession()) {
+            return;
+        }
+
+        sessionStarted = true;
+        frameHistory.clear();
+        idDictionary.reset();
+        store.recycleWorldIndices();
+        forceUpdate();
+    }
+
+    /**
+     * Called when the backend acknowledges the player frames up to the given sequence
+     */
+    public synchronized void onPlayersAcknowledged(long sequence) {
+        frameHistory.acknowledge(sequence);
+    }
+
+    /**
+     * Called from the world thread for every player on each world tick (event-driven tracking).
+     * A player that did not move since its last capture costs a map lookup and a compare;
+     * only players that moved at the configured PositionPrecision or changed world are captured
+     * and queued for the next tracking tick.
+     */
+    public void onPlayerTransform(PlayerRef playerRef, Vector3d position) {
+        UUID worldUuid = playerRef.getWorldUuid();
+        if (worldUuid == null) {
+            return;
+        }
+
+        MovementSample sample = movementSamples.get(playerRef.getUuid());
+        if (sample == null) {
+            sample = movementSamples.computeIfAbsent(playerRef.getUuid(), MovementSample::new);
+        }
+        if (!sample.hasMoved(worldUuid, position.x, position.y, position.z, store.getQuantizer())) {
+            return;
+        }
+
+        sample.update(playerRef.getUsername(), worldUuid, position.x, position.y, position.z);
+        if (sample.queued.compareAndSet(false, true)) {
+            movedPlayers.offer(sample);
+        }
+    }
+
+    public void onPlayerDisconnect(UUID playerUuid) {
+        movementSamples.remove(playerUuid);
+        pendingFullCapture.remove(playerUuid);
+
+        // In polling mode the next tick detects the player is gone
+        if (plugin.config.get().getEventDrivenTrackingEnabled()) {
+            synchronized (this) {
+                store.remove(playerUuid);
+            }
+        }
+    }
+
+    /**
+     * Returns the players within voice range of the given player (same world),
+     * as of the last computed snapshot. Empty when proximity neighbours are disabled.
+     */
+    public Set<String> getAudibleNeighbours(String playerUuid) {
+        return neighbourSets.getOrDefault(playerUuid, Set.of());
+    }
+
     private void startPeriodicTracking() {
+        trackingIntervalMillis = Math.max(MIN_TRACKING_INTERVAL_MILLIS, plugin.config.get().getTrackingIntervalMillis());
+
         trackingTask = HytaleServer.SCHEDULED_EXECUTOR.scheduleAtFixedRate(
-                this::collectPlayerStatesFromAllWorlds,
-                5,
-                TRACKING_INTERVAL_SECONDS,
-                TimeUnit.SECONDS
+                this::runTrackingTick,
+                TRACKING_START_DELAY_MILLIS,
+                trackingIntervalMillis,
+                TimeUnit.MILLISECONDS
         );
     }
 
     private void startForceUpdateTimer() {
         forceUpdateTask = HytaleServer.SCHEDULED_EXECUTOR.scheduleAtFixedRate(
-                () -> consolidateAndSend(true),
+                this::runKeyframeTick,
                 FORCE_UPDATE_INTERVAL_MINUTES,
                 FORCE_UPDATE_INTERVAL_MINUTES,
                 TimeUnit.MINUTES
         );
     }
 
-    private void collectPlayerStatesFromAllWorlds() {
+    // A periodic task that throws is never run again, so failures are only logged
+
+    private void runTrackingTick() {
+        try {
+            if (plugin.config.get().getEventDrivenTrackingEnabled()) {
+                drainMovedPlayers();
+            } else {
+                collectPlayerStatesFromAllWorlds(false);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.atSevere().withCause(e).log("Tracking tick failed: " + e.getMessage());
+        }
+    }
+
+    private void runKeyframeTick() {
+        try {
+            if (plugin.config.get().getEventDrivenTrackingEnabled()) {
+                // Full collection also reconciles players whose disconnect was missed
+                collectPlayerStatesFromAllWorlds(true);
+            } else {
+                consolidateAndSend(true);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.atSevere().withCause(e).log("Keyframe tick failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized void drainMovedPlayers() {
+        long tick = trackingTick.incrementAndGet();
+        long time = System.currentTimeMillis();
+
+        MovementSample sample;
+        while ((sample = movedPlayers.poll()) != null) {
+            sample.queued.set(false);
+
+            // Disconnected after being queued
+            if (movementSamples.get(sample.uuid) != sample) {
+                continue;
+            }
+
+            // One read: name, world and coordinates always come from the same capture
+            MovementSample.Position position = sample.latest();
+            store.capture(
+                    sample.uuid,
+                    position.name(),
+                    store.worldIndex(position.worldUuid()),
+                    true,
+                    position.x(),
+                    position.y(),
+                    position.z(),
+                    tick,
+                    time
+            );
+        }
+
+        // Players that did not move since the last tick are standing still
+        store.settleIdleSince(tick, time);
+
+        consolidateAndSend(false);
+    }
+
+    private void collectPlayerStatesFromAllWorlds(boolean force) {
+        // The previous tick is still waiting for its worlds (or being sent): don't pile up collections
+        TrackingTickBarrier previous = currentBarrier;
+        if (previous != null && !previous.isPublished()) {
+            skippedTicks.incrementAndGet();
+            if (force) {
+                previous.requestForce();
+            }
+            return;
+        }
+
         Universe universe = Universe.get();
         Collection<World> worlds = universe.getWorlds().values();
 
@@ -94,34 +343,149 @@ public class PlayerTrackingService {
             return;
         }
 
-        currentStates.clear();
-        AtomicInteger remainingWorlds = new AtomicInteger(worlds.size());
+        long tick = trackingTick.incrementAndGet();
+        long time = System.currentTimeMillis();
 
+        // Partition once per tick so each world task only touches its own players
+        Map<UUID, List<PlayerRef>> playersByWorld = groupPlayersByWorld(universe.getPlayers());
+
+        // Worlds still running the collection of an earlier tick are left out of this one
+        List<World> populatedWorlds = new ArrayList<>(playersByWorld.size());
+        Map<UUID, List<PlayerRef>> busyWorlds = new HashMap<>();
         for (World world : worlds) {
-            world.execute(() -> {
-                collectPlayerStatesFromWorld(world);
+            UUID worldUuid = world.getWorldConfig().getUuid();
+            if (!playersByWorld.containsKey(worldUuid)) {
+                continue;
+            }
+
+            if (worldsInFlight.contains(worldUuid)) {
+                busyWorlds.put(worldUuid, playersByWorld.get(worldUuid));
+            } else {
+                populatedWorlds.add(world);
+            }
+        }
+
+        // Drop capture buffers of worlds that no longer have players
+        worldCaptures.keySet().retainAll(playersByWorld.keySet());
+        worldBudgets.keySet().retainAll(playersByWorld.keySet());
 
-                if (remainingWorlds.decrementAndGet() == 0) {
-                    HytaleServer.SCHEDULED_EXECUTOR.execute(() -> consolidateAndSend(false));
+        Set<UUID> scheduledWorlds = new HashSet<>();
+        for (World world : populatedWorlds) {
+            scheduledWorlds.add(world.getWorldConfig().getUuid());
+        }
+
+        TrackingTickBarrier barrier = new TrackingTickBarrier(tick, time, force, scheduledWorlds);
+        currentBarrier = barrier;
+
+        if (populatedWorlds.isEmpty()) {
+            barrier.expire();
+            HytaleServer.SCHEDULED_EXECUTOR.execute(() -> completeTick(barrier, busyWorlds));
+            return;
+        }
+
+        HytaleServer.SCHEDULED_EXECUTOR.schedule(() -> {
+            if (barrier.expire()) {
+                onTickTimedOut(barrier, playersByWorld, busyWorlds);
+            }
+        }, trackingIntervalMillis, TimeUnit.MILLISECONDS);
+
+        for (World world : populatedWorlds) {
+            UUID worldUuid = world.getWorldConfig().getUuid();
+            List<PlayerRef> worldPlayers = playersByWorld.get(worldUuid);
+
+            worldsInFlight.add(worldUuid);
+            try {
+                world.execute(() -> {
+                    WorldCapture capture = worldCaptures.computeIfAbsent(worldUuid, uuid -> new WorldCapture());
+                    try {
+                        WorldCollectionBudget budget = worldBudgets.computeIfAbsent(worldUuid, uuid -> new WorldCollectionBudget());
+                        capture.clear(tick);
+                        collectPlayerStatesFromWorld(worldUuid, worldPlayers, capture, budget, barrier.isForce());
+                    } finally {
+                        worldsInFlight.remove(worldUuid);
+                    }
+
+                    // Reported after the deadline: the tick is sent without this world
+                    if (barrier.isCompleted()) {
+                        lateWorldReports.incrementAndGet();
+                        return;
+                    }
+
+                    if (barrier.arrive(worldUuid, capture)) {
+                        HytaleServer.SCHEDULED_EXECUTOR.execute(() -> completeTick(barrier, busyWorlds));
+                    }
+                });
+            } catch (RuntimeException e) {
+                // World shutting down: it will not report in this tick
+                worldsInFlight.remove(worldUuid);
+                if (barrier.arrive(worldUuid, null)) {
+                    HytaleServer.SCHEDULED_EXECUTOR.execute(() -> completeTick(barrier, busyWorlds));
                 }
-            });
+            }
         }
     }
 
-    private void collectPlayerStatesFromWorld(World world) {
-        UUID worldUuid = world.getWorldConfig().getUuid();
-        Universe universe = Universe.get();
+    private void onTickTimedOut(TrackingTickBarrier barrier, Map<UUID, List<PlayerRef>> playersByWorld,
+                                Map<UUID, List<PlayerRef>> busyWorlds) {
+        long timedOut = timedOutTicks.incrementAndGet();
+
+        Map<UUID, List<PlayerRef>> unreportedWorlds = new HashMap<>(busyWorlds);
+        for (UUID worldUuid : barrier.getPendingWorlds()) {
+            unreportedWorlds.put(worldUuid, playersByWorld.get(worldUuid));
+        }
+
+        if (timedOut % TIMEOUT_LOG_INTERVAL == 1) {
+            LOGGER.atWarning().log("Tracking tick " + barrier.getTick() + " timed out waiting for " +
+                    barrier.getPendingWorlds().size() + " world(s); sending the worlds that reported (" +
+                    timedOut + " timed out ticks, " + skippedTicks.get() + " skipped ticks so far)");
+        }
 
-        for (PlayerRef playerRef : universe.getPlayers()) {
+        completeTick(barrier, unreportedWorlds);
+    }
+
+    private Map<UUID, List<PlayerRef>> groupPlayersByWorld(Collection<PlayerRef> players) {
+        Map<UUID, List<PlayerRef>> playersByWorld = new HashMap<>();
+
+        for (PlayerRef playerRef : players) {
+            UUID worldUuid = playerRef.getWorldUuid();
+            if (worldUuid != null) {
+                playersByWorld.computeIfAbsent(worldUuid, uuid -> new ArrayList<>()).add(playerRef);
+            }
+        }
+
+        return playersByWorld;
+    }
+
+    /**
+     * Captures the players of a world. When reading every position would exceed the
+     * world's time budget, only one slice of the players is read per tick and the
+     * others are just marked as present (forced collections always read everyone).
+     */
+    private void collectPlayerStatesFromWorld(UUID worldUuid, List<PlayerRef> worldPlayers, WorldCapture capture,
+                                              WorldCollectionBudget budget, boolean force) {
+        budget.begin();
+
+        int captured = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < worldPlayers.size(); i++) {
+            PlayerRef playerRef = worldPlayers.get(i);
+
+            // The player may have changed world since the partition was built
             if (!isPlayerInWorld(playerRef, worldUuid)) {
                 continue;
             }
 
-            PlayerState state = createPlayerState(playerRef, worldUuid);
-            if (state != null) {
-                currentStates.put(state.getUuid(), state);
+            if (force || budget.isInSlice(i) || pendingFullCapture.remove(playerRef.getUuid())) {
+                capturePlayer(playerRef, capture);
+                captured++;
+            } else {
+                capture.addPresence(playerRef.getUuid(), playerRef.getUsername());
             }
         }
+
+        budget.record(System.nanoTime() - start, captured, worldPlayers.size(),
+                plugin.config.get().getWorldCollectionBudgetMicros());
     }
 
     private boolean isPlayerInWorld(PlayerRef playerRef, UUID worldUuid) {
@@ -129,78 +493,387 @@ public class PlayerTrackingService {
                 playerRef.getWorldUuid().equals(worldUuid);
     }
 
-    private PlayerState createPlayerState(PlayerRef playerRef, UUID worldUuid) {
-        PlayerState state = new PlayerState(
-                playerRef.getUuid().toString(),
-                playerRef.getUsername()
-        );
+    private void capturePlayer(PlayerRef playerRef, WorldCapture capture) {
+        Ref<EntityStore> ref = playerRef.getReference();
+        TransformComponent transform = null;
 
-        Position position = extractPlayerPosition(playerRef, worldUuid);
-        if (position != null) {
-            state.setPosition(position);
+        if (ref != null && ref.isValid()) {
+            Store<EntityStore> store = ref.getStore();
+            transform = store.getComponent(ref, TransformComponent.getComponentType());
         }
 
-        return state;
+        if (transform == null) {
+            capture.add(playerRef.getUuid(), playerRef.getUsername(), false, 0, 0, 0);
+            return;
+        }
+
+        Vector3d pos = transform.getPosition();
+        capture.add(playerRef.getUuid(), playerRef.getUsername(), true, pos.x, pos.y, pos.z);
     }
 
-    private Position extractPlayerPosition(PlayerRef playerRef, UUID worldUuid) {
-        Ref<EntityStore> ref = playerRef.getReference();
+    private void mergeWorldCapture(UUID worldUuid, WorldCapture capture, long tick, long time) {
+        int worldIndex = store.worldIndex(worldUuid);
 
-        if (ref == null || !ref.isValid()) {
-            return null;
+        for (int i = 0; i < capture.size(); i++) {
+            if (capture.isPresenceOnly(i)) {
+                // Unknown or moved to this world: read its position on the next tick
+                if (!store.touch(capture.getUuid(i), worldIndex, tick)) {
+                    pendingFullCapture.add(capture.getUuid(i));
+                }
+                continue;
+            }
+
+            store.capture(
+                    capture.getUuid(i),
+                    capture.getName(i),
+                    worldIndex,
+                    capture.hasPosition(i),
+                    capture.getX(i),
+                    capture.getY(i),
+                    capture.getZ(i),
+                    tick,
+                    time
+            );
         }
+    }
 
-        Store<EntityStore> store = ref.getStore();
-        TransformComponent transform = store.getComponent(
-                ref,
-                TransformComponent.getComponentType()
-        );
+    /**
+     * Sends the tick with the worlds that reported. Players of worlds that did not
+     * report (stalled or still busy) are kept with their last known state.
+     */
+    private synchronized void completeTick(TrackingTickBarrier barrier, Map<UUID, List<PlayerRef>> unreportedWorlds) {
+        long tick = barrier.getTick();
+
+        try {
+            // Publish the whole epoch at once
+            for (Map.Entry<UUID, WorldCapture> entry : barrier.getReports().entrySet()) {
+                if (entry.getValue().getEpoch() == tick) {
+                    mergeWorldCapture(entry.getKey(), entry.getValue(), tick, barrier.getTime());
+                }
+            }
 
-        if (transform == null) {
-            return null;
+            for (Map.Entry<UUID, List<PlayerRef>> entry : unreportedWorlds.entrySet()) {
+                int worldIndex = store.worldIndex(entry.getKey());
+                for (PlayerRef playerRef : entry.getValue()) {
+                    store.touch(playerRef.getUuid(), worldIndex, tick);
+                }
+            }
+
+            // Players not captured by any world in this tick (or a later one) have left
+            store.removeUnseenSince(tick);
+            if (!idDictionary.hasAnnouncedWorlds()) {
+                // No session ID points at the retired worlds' indices
+                store.recycleWorldIndices();
+            }
+            consolidateAndSend(barrier.isForce());
+        } catch (RuntimeException e) {
+            // Runs on the shared executor, which would swallow the exception
+            LOGGER.atSevere().withCause(e).log("Tracking tick " + tick + " failed: " + e.getMessage());
+        } finally {
+            // Always, or every later tick would be skipped waiting for this one
+            barrier.markPublished();
         }
+    }
 
-        Vector3d pos = transform.getPosition();
-        return new Position(pos.x, pos.y, pos.z, worldUuid.toString());
+    public long getSkippedTicks() {
+        return skippedTicks.get();
+    }
+
+    public long getTimedOutTicks() {
+        return timedOutTicks.get();
+    }
+
+    public long getLateWorldReports() {
+        return lateWorldReports.get();
     }
 
-    private void consolidateAndSend(boolean force) {
-        Map<String, PlayerState> snapshot = new HashMap<>(currentStates);
+    private synchronized void consolidateAndSend(boolean force) {
+        boolean deadReckoning = plugin.config.get().getDeadReckoningEnabled();
+        store.setPositionPrecision(plugin.config.get().getPositionPrecision());
+        int changedPlayers = store.prepareChanges(deadReckoning ? plugin.config.get().getDeadReckoningErrorBound() : 0);
 
-        if (!force && !hasStateChanges(snapshot)) {
+        // No backend session: hold everything back until onSessionStarted
+        if (!sessionActive) {
             return;
         }
 
-        sendPlayerUpdate(snapshot);
-        updatePreviousStates(snapshot);
+        boolean neighbours = plugin.config.get().getProximityNeighboursEnabled();
+        boolean priority = !force && plugin.config.get().getProximityPriorityEnabled();
+        boolean levelOfDetail = plugin.config.get().getLevelOfDetailEnabled();
+        boolean attenuation = plugin.config.get().getAttenuationEnabled();
+        double voiceRange = plugin.config.get().getVoiceRange();
+
+        if (neighbours || priority || levelOfDetail || attenuation) {
+            rebuildWorldGrids(voiceRange);
+        }
+
+        // Diffs are computed against the last one emitted, so while one is still waiting for
+        // the budget the next is held back and later covers both
+        if (neighbours && (force || wsManager.canEmitState(NEIGHBOURS_EVENT))) {
+            updateNeighbourSets(force, voiceRange);
+        }
+
+        if (attenuation) {
+            if (force || wsManager.canEmitState(GAINS_EVENT)) {
+                updateGains(force, voiceRange);
+            }
+        } else if (attenuationActive) {
+            // Disabled (config reload): start over with a full matrix if enabled again
+            attenuationActive = false;
+            attenuationEngine.reset();
+        }
+
+        if (priority || levelOfDetail || updatePriority.isLevelOfDetailActive()) {
+            changedPlayers = updatePriority.apply(store, worldGrids, voiceRange, trackingIntervalMillis,
+                    System.currentTimeMillis(), priority, levelOfDetail);
+        }
+
+        if (!force && changedPlayers == 0 && store.getRemoved().isEmpty()) {
+            return;
+        }
+
+        // Over the bandwidth budget: hold the changes back, they accumulate per player
+        // (latest position wins) and go out together once the budget allows
+        if (!force && !wsManager.canEmitPositions()) {
+            return;
+        }
+
+        if (!force && plugin.config.get().getDeltaPlayerUpdatesEnabled()) {
+            sendPlayerDelta(deadReckoning);
+            return;
+        }
+
+        sendPlayerUpdate(deadReckoning);
+
+        long now = System.currentTimeMillis();
+        for (int slot = store.nextOccupied(0); slot >= 0; slot = store.nextOccupied(slot + 1)) {
+            updatePriority.markSent(slot, now);
+        }
+        releaseRemovedIds();
+        store.markAllSent();
+    }
+
+    private void sendPlayerUpdate(boolean withVelocity) {
+        String announcement = announceIds(true);
+        SessionIdDictionary ids = wsManager.supportsCompactIds() ? idDictionary : null;
+
+        if (wsManager.supportsBinaryFrames()) {
+            emitPlayerFrame(PLAYERS_EVENT, true, frameCodec.encodeKeyframe(store, ++sequence, withVelocity, ids, wsManager.supportsQuantizedFrames()), announcement);
+        } else {
+            emitPlayerFrame(PLAYERS_EVENT, true, jsonWriter.writeKeyframe(store, ++sequence, withVelocity, ids), announcement);
+        }
+    }
+
+    /**
+     * Sends only added/moved/removed players compared to the last sent state.
+     * The store keeps the last state actually sent for each player, so slow
+     * movements below the tolerance still accumulate until they are sent.
+     */
+    private void sendPlayerDelta(boolean withVelocity) {
+        String announcement = announceIds(false);
+        SessionIdDictionary ids = wsManager.supportsCompactIds() ? idDictionary : null;
+
+        if (wsManager.supportsBinaryFrames()) {
+            emitPlayerFrame(PLAYERS_DELTA_EVENT, false, frameCodec.encodeDelta(store, ++sequence, withVelocity, ids, wsManager.supportsQuantizedFrames()), announcement);
+        } else {
+            emitPlayerFrame(PLAYERS_DELTA_EVENT, false, jsonWriter.writeDelta(store, ++sequence, withVelocity, ids), announcement);
+        }
+
+        long now = System.currentTimeMillis();
+        for (int slot = store.nextDirty(0); slot >= 0; slot = store.nextDirty(slot + 1)) {
+            updatePriority.markSent(slot, now);
+            store.markSent(slot);
+        }
+        releaseRemovedIds();
+        store.clearRemoved();
+    }
+
+    /**
+     * Announces the IDs of new or renamed players before the frame that uses them.
+     * The announcement is queued ahead of position frames by the outbound scheduler.
+     *
+     * @return the announcement sent, or null if there was none (or compact IDs are not negotiated)
+     */
+    private String announceIds(boolean allPlayers) {
+        if (!wsManager.supportsCompactIds()) {
+            return null;
+        }
+
+        IdDictionaryPayload announcement = idDictionary.prepare(store, allPlayers);
+        if (announcement == null) {
+            return null;
+        }
+
+        String json = plugin.gson.toJson(announcement);
+        wsManager.emit(OutboundScheduler.Priority.MEMBERSHIP, ID_DICTIONARY_EVENT, json);
+        return json;
+    }
+
+    private void emitPlayerFrame(String event, boolean keyframe, Object payload, String announcement) {
+        if (plugin.config.get().getSessionResumeEnabled()) {
+            frameHistory.record(sequence, keyframe, event, payload, announcement);
+        }
+
+        if (plugin.config.get().getLatencyTrackingEnabled()) {
+            // The ack also confirms the frame for session resume
+            long frameSequence = sequence;
+            wsManager.emitWithAck(OutboundScheduler.Priority.POSITIONS, event, plugin.config.get().getAckTimeoutMillis(),
+                    ack -> onPlayersAcknowledged(frameSequence), payload);
+        } else {
+            wsManager.emitPositions(event, payload);
+        }
     }
 
-    private boolean hasStateChanges(Map<String, PlayerState> snapshot) {
-        if (snapshot.size() != previousStates.size()) {
-            return true;
+    /**
+     * Sequence the next connection can offer to resume from, or -1 to start a new session
+     */
+    private synchronized long resumableSequence() {
+        if (!sessionStarted || !plugin.config.get().getSessionResumeEnabled()) {
+            return -1;
         }
+        return frameHistory.resumableSequence();
+    }
 
-        for (Map.Entry<String, PlayerState> entry : snapshot.entrySet()) {
-            PlayerState previousState = previousStates.get(entry.getKey());
-            if (previousState == null || !previousState.equals(entry.getValue())) {
-                return true;
+    /**
+     * Sends the player frames the backend missed, in order, then starts the neighbour and
+     * gain streams over with keyframes and sends the changes held back while disconnected
+     *
+     * @return false if the missed frames are no longer available
+     */
+    private boolean resumeSession() {
+        List<FrameHistory.Entry> frames = sessionStarted && plugin.config.get().getSessionResumeEnabled()
+                ? frameHistory.replay()
+                : null;
+        if (frames == null) {
+            return false;
+        }
+
+        // In order through the FIFO queue, not the latest-wins positions slot
+        for (FrameHistory.Entry frame : frames) {
+            for (String announcement : frame.getAnnouncements()) {
+                wsManager.emit(OutboundScheduler.Priority.MEMBERSHIP, ID_DICTIONARY_EVENT, announcement);
             }
+            wsManager.emit(OutboundScheduler.Priority.MEMBERSHIP, frame.getEvent(), frame.getPayload());
+        }
+
+        if (plugin.config.get().getLogWebsocketInfoInConsole()) {
+            LOGGER.atInfo().log("Session resumed, replayed " + frames.size() + " player frames");
         }
 
-        return false;
+        boolean neighbours = plugin.config.get().getProximityNeighboursEnabled();
+        double voiceRange = plugin.config.get().getVoiceRange();
+        if (neighbours || attenuationActive) {
+            rebuildWorldGrids(voiceRange);
+        }
+        if (neighbours) {
+            updateNeighbourSets(true, voiceRange);
+        }
+        if (attenuationActive) {
+            updateGains(true, voiceRange);
+        }
+
+        consolidateAndSend(false);
+        return true;
     }
 
-    private void updatePreviousStates(Map<String, PlayerState> snapshot) {
-        previousStates.clear();
-        previousStates.putAll(snapshot);
+    private void releaseRemovedIds() {
+        for (String uuid : store.getRemoved()) {
+            idDictionary.release(UUID.fromString(uuid));
+        }
     }
 
-    private void sendPlayerUpdate(Map<String, PlayerState> states) {
-        PlayerUpdateRequestPayload requestPayload = new PlayerUpdateRequestPayload(
-                states.size(),
-                new ArrayList<>(states.values())
+    private void updateNeighbourSets(boolean force, double voiceRange) {
+        Map<String, Set<String>> nextSets = new HashMap<>();
+        for (int slot = store.nextOccupied(0); slot >= 0; slot = store.nextOccupied(slot + 1)) {
+            if (!store.hasPosition(slot)) {
+                continue;
+            }
+
+            int self = slot;
+            Set<String> neighbours = new HashSet<>();
+            worldGrids.get(store.getWorld(slot)).forEachWithin(store.getX(slot), store.getY(slot), store.getZ(slot), voiceRange, other -> {
+                if (other != self) {
+                    neighbours.add(store.getUuid(other));
+                }
+            });
+            nextSets.put(store.getUuid(slot), neighbours);
+        }
+
+        List<NeighbourChange> changes = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : nextSets.entrySet()) {
+            Set<String> previous = force ? Set.of() : neighbourSets.getOrDefault(entry.getKey(), Set.of());
+            Set<String> current = entry.getValue();
+
+            List<String> added = new ArrayList<>();
+            for (String uuid : current) {
+                if (!previous.contains(uuid)) {
+                    added.add(uuid);
+                }
+            }
+
+            List<String> removed = new ArrayList<>();
+            for (String uuid : previous) {
+                if (!current.contains(uuid)) {
+                    removed.add(uuid);
+                }
+            }
+
+            if (!added.isEmpty() || !removed.isEmpty()) {
+                changes.add(new NeighbourChange(entry.getKey(), added, removed));
+            }
+        }
+
+        neighbourSets = nextSets;
+
+        if (!force && changes.isEmpty()) {
+            return;
+        }
+
+        NeighbourUpdateRequestPayload requestPayload = new NeighbourUpdateRequestPayload(++neighbourSequence, force, changes);
+        wsManager.emit(OutboundScheduler.Priority.STATE, NEIGHBOURS_EVENT, plugin.gson.toJson(requestPayload));
+    }
+
+    private void updateGains(boolean force, double voiceRange) {
+        if (attenuationEngine == null) {
+            attenuationEngine = new VoiceAttenuationEngine(Runtime.getRuntime().availableProcessors() / 2);
+        }
+
+        // First computation after (re-)enabling is a full matrix
+        boolean keyframe = force || !attenuationActive;
+        attenuationActive = true;
+
+        List<GainChange> changes = attenuationEngine.compute(
+                store,
+                worldGrids,
+                voiceRange,
+                VoiceAttenuationEngine.GainCurve.parse(plugin.config.get().getAttenuationCurve()),
+                (float) plugin.config.get().getGainChangeThreshold(),
+                keyframe
         );
 
-        wsManager.emit("server:players", plugin.gson.toJson(requestPayload));
+        if (!keyframe && changes.isEmpty()) {
+            return;
+        }
+
+        GainUpdateRequestPayload requestPayload = new GainUpdateRequestPayload(++gainSequence, keyframe, changes);
+        wsManager.emit(OutboundScheduler.Priority.STATE, GAINS_EVENT, plugin.gson.toJson(requestPayload));
+    }
+
+    private void rebuildWorldGrids(double voiceRange) {
+        // Voice range changed (config reload): drop grids with the old cell size
+        worldGrids.values().removeIf(grid -> grid.getCellSize() != voiceRange);
+        worldGrids.values().forEach(SpatialHashGrid::clear);
+
+        for (int slot = store.nextOccupied(0); slot >= 0; slot = store.nextOccupied(slot + 1)) {
+            if (!store.hasPosition(slot)) {
+                continue;
+            }
+
+            worldGrids.computeIfAbsent(store.getWorld(slot), world -> new SpatialHashGrid(voiceRange))
+                    .insert(slot, store.getX(slot), store.getY(slot), store.getZ(slot));
+        }
+
+        // Worlds that are now empty (e.g. closed instances)
+        worldGrids.values().removeIf(grid -> grid.size() == 0);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package me.nemtudo.voicechat.service;
+
+import me.nemtudo.voicechat.model.PlayerStateStore;
+import me.nemtudo.voicechat.utils.SpatialHashGrid;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Update rate and level of detail of each player based on the distance to the nearest
+ * other player in the same world.
+ * <p>
+ * Rate: players with someone within voice range are updated on every tick. Beyond it the
+ * update interval doubles for every extra voice range, and players with nobody within
+ * {@link #MAX_RANGES} voice ranges only get a slow heartbeat.
+ * <p>
+ * Level of detail: players with someone within {@link #FINE_RANGES} voice ranges keep the
+ * configured precision, up to {@link #MAX_RANGES} they get whole-block precision and beyond
+ * it they are presence-only (movements alone are not sent). The change threshold of the
+ * store follows the tier, so coarse players also produce fewer updates. Tiers are
+ * re-evaluated when a player moves and, for players below fine, periodically (someone
+ * may have walked up to a player standing still).
+ * <p>
+ * Only movements are affected: joins, renames and world changes are always sent right away.
+ * Used under the tracking service lock, indexed by store slot.
+ */
+public class ProximityUpdatePriority {
+
+    private static final int FINE_RANGES = 2;
+    // Beyond this many voice ranges a player only gets heartbeats / presence
+    private static final int MAX_RANGES = 4;
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 10_000;
+    private static final long LOD_REFRESH_INTERVAL_MILLIS = 1_000;
+
+    private long[] lastSentAt = new long[64];
+    private boolean lodActive = false;
+    private long lastLodRefresh = 0;
+
+    /**
+     * Updates the level of detail of moved players and defers the dirty movements that are not due yet
+     *
+     * @param rate whether to apply the distance-based update rate
+     * @param lod  whether to apply the distance-based level of detail
+     * @return number of slots still dirty
+     */
+    public int apply(PlayerStateStore store, Map<Integer, SpatialHashGrid> worldGrids, double voiceRange,
+                     long trackingIntervalMillis, long now, boolean rate, boolean lod) {
+        if (lod) {
+            lodActive = true;
+
+            if (now - lastLodRefresh >= LOD_REFRESH_INTERVAL_MILLIS) {
+                lastLodRefresh = now;
+                for (int slot = store.nextLowDetail(0); slot >= 0; slot = store.nextLowDetail(slot + 1)) {
+                    store.setLodTier(slot, lodTier(nearest(store, worldGrids, voiceRange, slot), voiceRange));
+                }
+            }
+
+            // Clean players that moved below their tier's threshold, then the dirty ones
+            for (int slot = store.nextLodCandidate(0); slot >= 0; slot = store.nextLodCandidate(slot + 1)) {
+                store.setLodTier(slot, lodTier(nearest(store, worldGrids, voiceRange, slot), voiceRange));
+            }
+            for (int slot = store.nextDirty(0); slot >= 0; slot = store.nextDirty(slot + 1)) {
+                if (store.isMovementOnly(slot)) {
+                    store.setLodTier(slot, lodTier(nearest(store, worldGrids, voiceRange, slot), voiceRange));
+                }
+            }
+        } else if (lodActive) {
+            // Level of detail turned off (config reload): back to full precision
+            lodActive = false;
+            for (int slot = store.nextLowDetail(0); slot >= 0; slot = store.nextLowDetail(slot + 1)) {
+                store.setLodTier(slot, PlayerStateStore.LOD_FINE);
+            }
+        }
+
+        if (rate) {
+            for (int slot = store.nextDirty(0); slot >= 0; slot = store.nextDirty(slot + 1)) {
+                if (!store.isMovementOnly(slot)) {
+                    continue;
+                }
+
+                double nearest = nearest(store, worldGrids, voiceRange, slot);
+                if (now - lastSentAt(slot) < intervalMillis(nearest, voiceRange, trackingIntervalMillis)) {
+                    store.deferDirty(slot);
+                }
+            }
+        }
+
+        return store.dirtyCount();
+    }
+
+    public boolean isLevelOfDetailActive() {
+        return lodActive;
+    }
+
+    public void markSent(int slot, long now) {
+        if (slot >= lastSentAt.length) {
+            lastSentAt = Arrays.copyOf(lastSentAt, Math.max(slot + 1, lastSentAt.length * 2));
+        }
+        lastSentAt[slot] = now;
+    }
+
+    private long lastSentAt(int slot) {
+        return slot < lastSentAt.length ? lastSentAt[slot] : 0;
+    }
+
+    private static double nearest(PlayerStateStore store, Map<Integer, SpatialHashGrid> worldGrids,
+                                  double voiceRange, int slot) {
+        SpatialHashGrid grid = worldGrids.get(store.getWorld(slot));
+        return grid == null
+                ? Double.POSITIVE_INFINITY
+                : grid.nearestWithin(store.getX(slot), store.getY(slot), store.getZ(slot), voiceRange * MAX_RANGES, slot);
+    }
+
+    private static byte lodTier(double nearest, double voiceRange) {
+        if (nearest <= voiceRange * FINE_RANGES) {
+            return PlayerStateStore.LOD_FINE;
+        }
+        if (nearest <= voiceRange * MAX_RANGES) {
+            return PlayerStateStore.LOD_COARSE;
+        }
+        return PlayerStateStore.LOD_PRESENCE;
+    }
+
+    private static long intervalMillis(double nearest, double voiceRange, long trackingIntervalMillis) {
+        if (nearest <= voiceRange) {
+            return 0;
+        }
+        if (Double.isInfinite(nearest)) {
+            return HEARTBEAT_INTERVAL_MILLIS;
+        }
+
+        int ranges = (int) Math.ceil(nearest / voiceRange);
+        return Math.min(HEARTBEAT_INTERVAL_MILLIS, trackingIntervalMillis << (ranges - 1));
+    }
+}
@@ -0,0 +1,111 @@
+package me.nemtudo.voicechat.service;
+
+import me.nemtudo.voicechat.model.WorldCapture;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Barrier of one tracking tick: completes when every scheduled world reported
+ * or when the deadline passes, whichever comes first. Worlds that did not report
+ * in time are left out of the tick (their players keep the last known state).
+ * <p>
+ * World threads hand their filled capture buffers (the back buffer of this epoch)
+ * to the barrier without taking the service lock; the sender merges them into the
+ * store in one step once the tick completes, so it never sees a half-collected tick.
+ */
+public class TrackingTickBarrier {
+
+    private final long tick;
+    private final long time;
+    private final Set<UUID> pendingWorlds = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger remainingWorlds;
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private final Map<UUID, WorldCapture> reports = new ConcurrentHashMap<>();
+
+    // Set once the captures of this tick were merged and sent
+    private volatile boolean published = false;
+
+    private volatile boolean force;
+
+    public TrackingTickBarrier(long tick, long time, boolean force, Set<UUID> worlds) {
+        this.tick = tick;
+        this.time = time;
+        this.force = force;
+        this.pendingWorlds.addAll(worlds);
+        this.remainingWorlds = new AtomicInteger(worlds.size());
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public boolean isForce() {
+        return force;
+    }
+
+    /**
+     * Upgrades the tick to a forced one (a keyframe requested while it was running)
+     */
+    public void requestForce() {
+        force = true;
+    }
+
+    public boolean isCompleted() {
+        return completed.get();
+    }
+
+    public boolean isPublished() {
+        return published;
+    }
+
+    public void markPublished() {
+        published = true;
+    }
+
+    /**
+     * Records that a world reported, handing over its capture for this tick
+     * (null if the world could not be collected)
+     *
+     * @return true if it was the last pending world and the caller must complete the tick
+     */
+    public boolean arrive(UUID worldUuid, WorldCapture capture) {
+        if (capture != null) {
+            reports.put(worldUuid, capture);
+        }
+        pendingWorlds.remove(worldUuid);
+        return remainingWorlds.decrementAndGet() == 0 && completed.compareAndSet(false, true);
+    }
+
+    /**
+     * Called when the deadline passes
+     *
+     * @return true if the tick was still open and the caller must complete it
+     */
+    public boolean expire() {
+        return completed.compareAndSet(false, true);
+    }
+
+    /**
+     * Captures handed over so far, by world
+     */
+    public Map<UUID, WorldCapture> getReports() {
+        return reports;
+    }
+
+    /**
+     * Worlds that did not report before the barrier completed
+     */
+    public Set<UUID> getPendingWorlds() {
+        return new HashSet<>(pendingWorlds);
+    }
+}
@@ -0,0 +1,265 @@
+package me.nemtudo.voicechat.service;
+
+import me.nemtudo.voicechat.model.PlayerStateStore;
+import me.nemtudo.voicechat.network.GainUpdateRequestPayload.GainChange;
+import me.nemtudo.voicechat.utils.SpatialHashGrid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sparse voice gain matrix computed from the tracking snapshot.
+ * <p>
+ * Every pair of players in the same world within voice range gets a gain from
+ * 1 (same position) to 0 (at the voice range), following the configured curve;
+ * players in different worlds never hear each other. The pairs are computed on a
+ * ForkJoinPool, split by world and spatial grid cell, and only gains that moved
+ * by at least the threshold since they were last sent are returned.
+ * <p>
+ * Pairs are keyed by store slot. Slots whose player changed since the previous
+ * computation are dropped first, so a reused slot never inherits old gains.
+ * Used under the tracking service lock; the workers only read the store and the
+ * grids while the caller waits.
+ */
+public class VoiceAttenuationEngine {
+
+    public enum GainCurve {
+        LINEAR,
+        QUADRATIC,
+        INVERSE;
+
+        public static GainCurve parse(String value) {
+            for (GainCurve curve : values()) {
+                if (curve.name().equalsIgnoreCase(value)) {
+                    return curve;
+                }
+            }
+            return LINEAR;
+        }
+
+        /**
+         * @param t distance / voice range, from 0 to 1
+         */
+        float gain(double t) {
+            double gain = switch (this) {
+                case LINEAR -> 1 - t;
+                case QUADRATIC -> (1 - t) * (1 - t);
+                // 1 / (1 + k t), rescaled so the gain reaches 0 at the voice range
+                case INVERSE -> (1 / (1 + INVERSE_ROLLOFF * t) - INVERSE_FLOOR) / (1 - INVERSE_FLOOR);
+            };
+            return (float) Math.max(0, Math.min(1, gain));
+        }
+    }
+
+    private static final double INVERSE_ROLLOFF = 4;
+    private static final double INVERSE_FLOOR = 1 / (1 + INVERSE_ROLLOFF);
+
+    // Grid cells handled by one leaf task
+    private static final int CELLS_PER_TASK = 16;
+    private static final float GAIN_SCALE = 1000f;
+
+    private final ForkJoinPool pool;
+
+    // Last gain sent for each pair (slotA << 32 | slotB, slotA < slotB)
+    private final Map<Long, Float> sentGains = new HashMap<>();
+    // Player of each slot in the previous computation
+    private UUID[] slotOwners = new UUID[64];
+
+    public VoiceAttenuationEngine(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * Computes the gain changes since the last call
+     *
+     * @param worldGrids grids of the current snapshot, with cell size = voice range
+     * @param keyframe   return every audible pair instead of only the changes
+     */
+    public List<GainChange> compute(PlayerStateStore store, Map<Integer, SpatialHashGrid> worldGrids,
+                                    double voiceRange, GainCurve curve, float threshold, boolean keyframe) {
+        List<GainChange> changes = new ArrayList<>();
+
+        if (keyframe) {
+            sentGains.clear();
+        }
+
+        dropStalePairs(store, voiceRange, changes);
+
+        List<CellWork> work = new ArrayList<>();
+        for (SpatialHashGrid grid : worldGrids.values()) {
+            for (int[] members : grid.cellMembers()) {
+                work.add(new CellWork(grid, members));
+            }
+        }
+
+        if (!work.isEmpty()) {
+            PairBuffer computed = pool.invoke(new PairTask(store, work, 0, work.size(), voiceRange, curve, threshold));
+
+            for (int i = 0; i < computed.size; i++) {
+                long key = computed.keys[i];
+                float gain = computed.gains[i];
+                sentGains.put(key, gain);
+                changes.add(new GainChange(store.getUuid((int) (key >>> 32)), store.getUuid((int) key), gain));
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Forgets every pair (engine disabled or new session)
+     */
+    public void reset() {
+        sentGains.clear();
+        Arrays.fill(slotOwners, null);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Removes pairs of players that left (silently, the backend drops them with the
+     * player) and pairs that are no longer audible (sent as gain 0)
+     */
+    private void dropStalePairs(PlayerStateStore store, double voiceRange, List<GainChange> changes) {
+        int capacity = slotOwners.length;
+        for (int slot = store.nextOccupied(0); slot >= 0; slot = store.nextOccupied(slot + 1)) {
+            capacity = Math.max(capacity, slot + 1);
+        }
+        UUID[] owners = new UUID[capacity];
+        for (int slot = store.nextOccupied(0); slot >= 0; slot = store.nextOccupied(slot + 1)) {
+            owners[slot] = store.getUuidValue(slot);
+        }
+
+        Iterator<Map.Entry<Long, Float>> iterator = sentGains.entrySet().iterator();
+        while (iterator.hasNext()) {
+            long key = iterator.next().getKey();
+            int a = (int) (key >>> 32);
+            int b = (int) key;
+
+            if (owners[a] == null || owners[b] == null ||
+                    !owners[a].equals(slotOwners[a]) || !owners[b].equals(slotOwners[b])) {
+                iterator.remove();
+                continue;
+            }
+
+            if (!isAudible(store, a, b, voiceRange)) {
+                changes.add(new GainChange(store.getUuid(a), store.getUuid(b), 0f));
+                iterator.remove();
+            }
+        }
+
+        slotOwners = owners;
+    }
+
+    private static boolean isAudible(PlayerStateStore store, int a, int b, double voiceRange) {
+        if (!store.hasPosition(a) || !store.hasPosition(b) || store.getWorld(a) != store.getWorld(b)) {
+            return false;
+        }
+        return distance(store, a, b) < voiceRange;
+    }
+
+    private static double distance(PlayerStateStore store, int a, int b) {
+        double dx = store.getX(a) - store.getX(b);
+        double dy = store.getY(a) - store.getY(b);
+        double dz = store.getZ(a) - store.getZ(b);
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private record CellWork(SpatialHashGrid grid, int[] members) {}
+
+    /**
+     * Computes the pairs of a range of cells, splitting in halves until a leaf is small enough
+     */
+    private final class PairTask extends RecursiveTask<PairBuffer> {
+
+        private final PlayerStateStore store;
+        private final List<CellWork> work;
+        private final int from;
+        private final int to;
+        private final double voiceRange;
+        private final GainCurve curve;
+        private final float threshold;
+
+        private PairTask(PlayerStateStore store, List<CellWork> work, int from, int to,
+                         double voiceRange, GainCurve curve, float threshold) {
+            this.store = store;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+            this.voiceRange = voiceRange;
+            this.curve = curve;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected PairBuffer compute() {
+            if (to - from > CELLS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                PairTask left = new PairTask(store, work, from, middle, voiceRange, curve, threshold);
+                PairTask right = new PairTask(store, work, middle, to, voiceRange, curve, threshold);
+                left.fork();
+                PairBuffer rightResult = right.compute();
+                return left.join().append(rightResult);
+            }
+
+            PairBuffer result = new PairBuffer();
+            for (int i = from; i < to; i++) {
+                CellWork cell = work.get(i);
+                for (int a : cell.members()) {
+                    cell.grid().forEachWithin(store.getX(a), store.getY(a), store.getZ(a), voiceRange, b -> {
+                        // Each pair once, from its lower slot
+                        if (b <= a) {
+                            return;
+                        }
+
+                        double t = distance(store, a, b) / voiceRange;
+                        if (t >= 1) {
+                            return;
+                        }
+
+                        float gain = Math.round(curve.gain(t) * GAIN_SCALE) / GAIN_SCALE;
+                        long key = ((long) a << 32) | b;
+                        Float previous = sentGains.get(key);
+                        if (previous == null || Math.abs(previous - gain) >= threshold) {
+                            result.add(key, gain);
+                        }
+                    });
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class PairBuffer {
+
+        private long[] keys = new long[16];
+        private float[] gains = new float[16];
+        private int size = 0;
+
+        private void add(long key, float gain) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                gains = Arrays.copyOf(gains, size * 2);
+            }
+            keys[size] = key;
+            gains[size] = gain;
+            size++;
+        }
+
+        private PairBuffer append(PairBuffer other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.keys[i], other.gains[i]);
+            }
+            return this;
+        }
+    }
+}
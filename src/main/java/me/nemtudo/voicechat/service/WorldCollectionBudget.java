@@ -0,0 +1,63 @@
+package me.nemtudo.voicechat.service;
+
+/**
+ * Per-world time budget for position collection.
+ * <p>
+ * Measures how long each collection takes on the world thread and, when the
+ * estimated cost of reading every player exceeds the budget, spreads the
+ * collection across several tracking ticks: each tick only reads the positions
+ * of one slice of the players. Only used from the world's own thread.
+ */
+public class WorldCollectionBudget {
+
+    private static final int MAX_SLICES = 20;
+    private static final double COST_SMOOTHING = 0.2;
+
+    private int slices = 1;
+    private int phase = 0;
+
+    // Smoothed cost of capturing one player, in nanoseconds
+    private double playerCostNanos = 0;
+
+    /**
+     * Starts a new collection, moving on to the next slice
+     */
+    public void begin() {
+        phase = (phase + 1) % slices;
+    }
+
+    /**
+     * Whether the player at the given index of the world's player list is read in this collection
+     */
+    public boolean isInSlice(int index) {
+        return index % slices == phase;
+    }
+
+    /**
+     * Records the duration of a collection and recomputes how many ticks it must be spread over
+     *
+     * @param elapsedNanos   time spent collecting
+     * @param capturedCount  players whose position was read
+     * @param totalCount     players in the world
+     * @param budgetMicros   time budget per collection
+     */
+    public void record(long elapsedNanos, int capturedCount, int totalCount, long budgetMicros) {
+        if (capturedCount == 0) {
+            return;
+        }
+
+        double cost = (double) elapsedNanos / capturedCount;
+        playerCostNanos = playerCostNanos == 0
+                ? cost
+                : playerCostNanos * (1 - COST_SMOOTHING) + cost * COST_SMOOTHING;
+
+        if (budgetMicros <= 0) {
+            slices = 1;
+        } else {
+            int needed = (int) Math.ceil(playerCostNanos * totalCount / (budgetMicros * 1000.0));
+            slices = Math.max(1, Math.min(MAX_SLICES, needed));
+        }
+
+        phase %= slices;
+    }
+}
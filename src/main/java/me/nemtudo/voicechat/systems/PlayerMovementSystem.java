@@ -0,0 +1,54 @@
+package me.nemtudo.voicechat.systems;
+
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.tick.EntityTickingSystem;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import me.nemtudo.voicechat.VoiceChat;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Reports player movement to the tracking service from the world tick
+ * (event-driven tracking).
+ * <p>
+ * There is no transform-changed event, so this polls every player's transform each
+ * world tick. The service compares it with the player's last capture and returns
+ * right away when it did not move, so standing players are never captured or queued.
+ */
+public class PlayerMovementSystem extends EntityTickingSystem<EntityStore> {
+
+    private final VoiceChat plugin;
+
+    public PlayerMovementSystem(VoiceChat plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void tick(float dt, int index, @Nonnull ArchetypeChunk<EntityStore> archetypeChunk,
+                     @Nonnull Store<EntityStore> store, @Nonnull CommandBuffer<EntityStore> commandBuffer) {
+        if (!plugin.config.get().getEventDrivenTrackingEnabled()) {
+            return;
+        }
+
+        PlayerRef playerRef = archetypeChunk.getComponent(index, PlayerRef.getComponentType());
+        TransformComponent transform = archetypeChunk.getComponent(index, TransformComponent.getComponentType());
+
+        if (playerRef == null || transform == null) {
+            return;
+        }
+
+        plugin.getPlayerTrackingService().onPlayerTransform(playerRef, transform.getPosition());
+    }
+
+    @Nullable
+    @Override
+    public Query<EntityStore> getQuery() {
+        return Query.and(PlayerRef.getComponentType(), TransformComponent.getComponentType());
+    }
+}
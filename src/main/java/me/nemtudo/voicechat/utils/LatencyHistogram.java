@@ -0,0 +1,87 @@
+package me.nemtudo.voicechat.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências em microssegundos, no estilo HDR (log-linear).
+ * <p>
+ * Abaixo de {@code 2^SUB_BITS} µs cada valor tem seu balde; acima, cada potência de 2
+ * é dividida em {@code 2^(SUB_BITS-1)} baldes, então o erro relativo fica abaixo de
+ * ~6% com memória fixa. Valores acima de ~19 horas contam no último balde.
+ * Seguro para várias threads gravando e lendo ao mesmo tempo (sem locks).
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_SUB_COUNT = SUB_COUNT >> 1;
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0, Math.min(MAX_VALUE, micros));
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    /**
+     * Valor do percentil (maior valor do balde em que ele cai), em microssegundos
+     *
+     * @param percentile de 0 a 100
+     * @return o valor, ou 0 sem amostras
+     */
+    public long percentileMicros(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public long maxMicros() {
+        return max.get();
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    private static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+
+        // value >> shift fica em [SUB_COUNT / 2, SUB_COUNT)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS + 1;
+        return (shift * HALF_SUB_COUNT) + (int) (value >> shift);
+    }
+
+    private static long highestInBucket(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+
+        int shift = index / HALF_SUB_COUNT - 1;
+        long lowest = (long) (index - shift * HALF_SUB_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
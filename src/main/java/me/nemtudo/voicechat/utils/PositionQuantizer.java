@@ -0,0 +1,58 @@
+package me.nemtudo.voicechat.utils;
+
+/**
+ * Quantização de posições em ponto fixo.
+ * <p>
+ * Cada coordenada vira um inteiro em passos de {@code quantum} blocos; os frames mandam
+ * a diferença para uma origem por mundo, então os números ficam pequenos. A mesma
+ * quantização é usada na detecção de mudanças, então posições iguais no frame sempre
+ * comparam iguais.
+ */
+public class PositionQuantizer {
+
+    public static final double MIN_QUANTUM = 0.001;
+    public static final double MAX_QUANTUM = 1.0;
+
+    private final double quantum;
+    private final int quantumMillis;
+
+    /**
+     * @param quantum precisão em blocos; arredondada para milésimos e limitada a [0.001, 1]
+     */
+    public PositionQuantizer(double quantum) {
+        double clamped = Double.isFinite(quantum)
+                ? Math.max(MIN_QUANTUM, Math.min(MAX_QUANTUM, quantum))
+                : MIN_QUANTUM;
+        this.quantumMillis = (int) Math.round(clamped * 1000);
+        this.quantum = quantumMillis / 1000.0;
+    }
+
+    public long quantize(double coordinate) {
+        if (!Double.isFinite(coordinate)) {
+            return 0;
+        }
+        return Math.round(coordinate / quantum);
+    }
+
+    public double dequantize(long quantized) {
+        return quantized * quantum;
+    }
+
+    /**
+     * Coordenada quantizada arredondada de volta para blocos
+     */
+    public double snap(double coordinate) {
+        return dequantize(quantize(coordinate));
+    }
+
+    public double getQuantum() {
+        return quantum;
+    }
+
+    /**
+     * Precisão em milésimos de bloco, como vai no cabeçalho dos frames
+     */
+    public int getQuantumMillis() {
+        return quantumMillis;
+    }
+}
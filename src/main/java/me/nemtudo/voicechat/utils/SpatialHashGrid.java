@@ -0,0 +1,306 @@
+package me.nemtudo.voicechat.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Grade espacial (spatial hash) para consultas por raio sobre ids inteiros.
+ * <p>
+ * O tamanho da célula deve ser igual ao raio mais usado nas consultas:
+ * assim cada consulta visita no máximo 27 células em vez de todos os pontos.
+ * As células ficam numa tabela de endereçamento aberto com chaves long (sem boxing),
+ * guardam arrays primitivos reaproveitados entre reconstruções, e as distâncias dentro
+ * de cada célula são calculadas pelo {@link DistanceKernel}.
+ */
+public class SpatialHashGrid {
+
+    private static final int CELL_BITS = 21;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    // Buffers por thread: as consultas podem vir de várias threads ao mesmo tempo
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final double cellSize;
+    private final CellTable cells = new CellTable();
+    private int size = 0;
+
+    public SpatialHashGrid(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Invalid cell size: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Limpa a grade, reaproveitando as células ainda ocupadas
+     */
+    public void clear() {
+        cells.clearKeepingOccupied();
+        size = 0;
+    }
+
+    public void insert(int id, double x, double y, double z) {
+        cells.getOrCreate(cellKey(cell(x), cell(y), cell(z))).add(id, x, y, z);
+        size++;
+    }
+
+    /**
+     * Executa o consumer para cada id a no máximo {@code radius} de (x, y, z).
+     * O consumer não pode consultar grades na mesma thread (os buffers são compartilhados).
+     */
+    public void forEachWithin(double x, double y, double z, double radius, IntConsumer consumer) {
+        double radiusSquared = radius * radius;
+        Scratch scratch = SCRATCH.get();
+
+        int minX = cell(x - radius), maxX = cell(x + radius);
+        int minY = cell(y - radius), maxY = cell(y + radius);
+        int minZ = cell(z - radius), maxZ = cell(z + radius);
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    Cell cell = cells.get(cellKey(cx, cy, cz));
+                    if (cell == null) {
+                        continue;
+                    }
+
+                    int[] hits = scratch.hits(cell.count);
+                    int found = DistanceKernel.within(x, y, z, radiusSquared, cell.x, cell.y, cell.z, cell.count, hits);
+                    for (int i = 0; i < found; i++) {
+                        consumer.accept(cell.ids[hits[i]]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Distância até o ponto mais próximo dentro do raio, ignorando o id informado.
+     * Visita as células em anéis a partir da célula do ponto e para assim que nenhum
+     * anel seguinte pode ter um ponto mais perto, então raios grandes só custam caro
+     * quando não há ninguém por perto.
+     *
+     * @return a distância, ou {@link Double#POSITIVE_INFINITY} se não houver nenhum ponto no raio
+     */
+    public double nearestWithin(double x, double y, double z, double radius, int excludedId) {
+        if (size == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double radiusSquared = radius * radius;
+        double nearestSquared = Double.POSITIVE_INFINITY;
+
+        int originX = cell(x), originY = cell(y), originZ = cell(z);
+        int minX = cell(x - radius), maxX = cell(x + radius);
+        int minY = cell(y - radius), maxY = cell(y + radius);
+        int minZ = cell(z - radius), maxZ = cell(z + radius);
+        int rings = Math.max(Math.max(Math.max(originX - minX, maxX - originX), Math.max(originY - minY, maxY - originY)),
+                Math.max(originZ - minZ, maxZ - originZ));
+
+        for (int ring = 0; ring <= rings; ring++) {
+            for (int cx = Math.max(minX, originX - ring); cx <= Math.min(maxX, originX + ring); cx++) {
+                for (int cy = Math.max(minY, originY - ring); cy <= Math.min(maxY, originY + ring); cy++) {
+                    // Dentro do anel só as faces z = ±ring, a não ser que x ou y já estejam na borda
+                    boolean edge = Math.abs(cx - originX) == ring || Math.abs(cy - originY) == ring;
+                    int step = edge || ring == 0 ? 1 : 2 * ring;
+                    for (int cz = originZ - ring; cz <= originZ + ring; cz += step) {
+                        if (cz < minZ || cz > maxZ) {
+                            continue;
+                        }
+                        Cell cell = cells.get(cellKey(cx, cy, cz));
+                        if (cell != null) {
+                            nearestSquared = nearestInCell(x, y, z, radiusSquared, excludedId, cell, nearestSquared);
+                        }
+                    }
+                }
+            }
+
+            // Qualquer ponto dos anéis seguintes está a pelo menos ring células de distância
+            double reach = ring * cellSize;
+            if (nearestSquared <= reach * reach) {
+                break;
+            }
+        }
+
+        return Math.sqrt(nearestSquared);
+    }
+
+    private static double nearestInCell(double x, double y, double z, double radiusSquared, int excludedId,
+                                        Cell cell, double nearestSquared) {
+        double[] distances = SCRATCH.get().distances(cell.count);
+        DistanceKernel.squaredDistances(x, y, z, cell.x, cell.y, cell.z, cell.count, distances);
+        for (int i = 0; i < cell.count; i++) {
+            if (cell.ids[i] == excludedId) {
+                continue;
+            }
+
+            double distanceSquared = distances[i];
+            if (distanceSquared <= radiusSquared && distanceSquared < nearestSquared) {
+                nearestSquared = distanceSquared;
+            }
+        }
+        return nearestSquared;
+    }
+
+    /**
+     * Ids de cada célula não vazia (cópias), para dividir o trabalho por célula
+     */
+    public List<int[]> cellMembers() {
+        List<int[]> members = new ArrayList<>(cells.size);
+        for (Cell cell : cells.values) {
+            if (cell != null && cell.count > 0) {
+                members.add(Arrays.copyOf(cell.ids, cell.count));
+            }
+        }
+        return members;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(int cx, int cy, int cz) {
+        return ((cx & CELL_MASK) << (CELL_BITS * 2)) | ((cy & CELL_MASK) << CELL_BITS) | (cz & CELL_MASK);
+    }
+
+    private static final class Cell {
+
+        private int[] ids = new int[8];
+        private double[] x = new double[8];
+        private double[] y = new double[8];
+        private double[] z = new double[8];
+        private int count = 0;
+
+        private void add(int id, double px, double py, double pz) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                z = Arrays.copyOf(z, capacity);
+            }
+
+            ids[count] = id;
+            x[count] = px;
+            y[count] = py;
+            z[count] = pz;
+            count++;
+        }
+    }
+
+    /**
+     * Tabela de células com chaves long, endereçamento aberto e sondagem linear
+     */
+    private static final class CellTable {
+
+        private long[] keys = new long[64];
+        private Cell[] values = new Cell[64];
+        private int size = 0;
+
+        private Cell get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                Cell cell = values[i];
+                if (cell == null || keys[i] == key) {
+                    return cell;
+                }
+            }
+        }
+
+        private Cell getOrCreate(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            for (; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+
+            Cell cell = new Cell();
+            keys[i] = key;
+            values[i] = cell;
+            if (++size * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            return cell;
+        }
+
+        /**
+         * Esvazia as células ocupadas (mantendo seus arrays) e descarta as que já estavam vazias
+         */
+        private void clearKeepingOccupied() {
+            int occupied = 0;
+            for (int i = 0; i < values.length; i++) {
+                Cell cell = values[i];
+                if (cell == null) {
+                    continue;
+                }
+                if (cell.count == 0) {
+                    values[i] = null;
+                } else {
+                    cell.count = 0;
+                    occupied++;
+                }
+            }
+
+            // Sem remoção no lugar: reconstrói para não deixar buracos nas sequências de sondagem
+            size = occupied;
+            rehash(keys.length);
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            Cell[] oldValues = values;
+            keys = new long[capacity];
+            values = new Cell[capacity];
+
+            int mask = capacity - 1;
+            for (int j = 0; j < oldValues.length; j++) {
+                if (oldValues[j] == null) {
+                    continue;
+                }
+                int i = hash(oldKeys[j]) & mask;
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private static final class Scratch {
+
+        private int[] hits = new int[64];
+        private double[] distances = new double[64];
+
+        private int[] hits(int count) {
+            if (hits.length < count) {
+                hits = new int[Math.max(count, hits.length * 2)];
+            }
+            return hits;
+        }
+
+        private double[] distances(int count) {
+            if (distances.length < count) {
+                distances = new double[Math.max(count, distances.length * 2)];
+            }
+            return distances;
+        }
+    }
+}
@@ -3,12 +3,15 @@ package me.nemtudo.voicechat.utils;
 import com.hypixel.hytale.codec.Codec;
 import com.hypixel.hytale.codec.KeyedCodec;
 import com.hypixel.hytale.codec.builder.BuilderCodec;
+import com.hypixel.hytale.logger.HytaleLogger;
 
 /**
  * Configuração do plugin VoiceChat
  */
 public class VoiceChatConfig {
 
+    private static final HytaleLogger LOGGER = HytaleLogger.forEnclosingClass();
+
     public static final BuilderCodec<VoiceChatConfig> CODEC =
             BuilderCodec.builder(VoiceChatConfig.class, VoiceChatConfig::new)
                     // Comment
@@ -70,6 +73,150 @@ public class VoiceChatConfig {
                             (config, info) -> config.logWebsocketInfoInConsole)
                     .add()
 
+                    // If plugin will send only changed players between keyframes (requires backend support)
+                    .append(new KeyedCodec<Boolean>("DeltaPlayerUpdatesEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.deltaPlayerUpdatesEnabled = value,
+                            (config, info) -> config.deltaPlayerUpdatesEnabled)
+                    .add()
+
+                    // If plugin will send audible neighbour set changes (requires backend support)
+                    .append(new KeyedCodec<Boolean>("ProximityNeighboursEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.proximityNeighboursEnabled = value,
+                            (config, info) -> config.proximityNeighboursEnabled)
+                    .add()
+
+                    // Voice range in blocks - players closer than this can hear each other
+                    .append(new KeyedCodec<Double>("VoiceRange", Codec.DOUBLE),
+                            (config, value, info) -> config.voiceRange = value,
+                            (config, info) -> config.voiceRange)
+                    .add()
+
+                    // If plugin will offer the binary player update format with quantized positions to the backend (socketApiVersion 4)
+                    .append(new KeyedCodec<Boolean>("BinaryPlayerUpdatesEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.binaryPlayerUpdatesEnabled = value,
+                            (config, info) -> config.binaryPlayerUpdatesEnabled)
+                    .add()
+
+                    // If plugin will capture positions from the world tick only for players that moved, instead of polling everyone
+                    .append(new KeyedCodec<Boolean>("EventDrivenTrackingEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.eventDrivenTrackingEnabled = value,
+                            (config, info) -> config.eventDrivenTrackingEnabled)
+                    .add()
+
+                    // If plugin will send velocities and only update players whose extrapolated position drifted too far
+                    .append(new KeyedCodec<Boolean>("DeadReckoningEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.deadReckoningEnabled = value,
+                            (config, info) -> config.deadReckoningEnabled)
+                    .add()
+
+                    // Max distance in blocks between the extrapolated and the real position before an update is sent
+                    .append(new KeyedCodec<Double>("DeadReckoningErrorBound", Codec.DOUBLE),
+                            (config, value, info) -> config.deadReckoningErrorBound = value,
+                            (config, info) -> config.deadReckoningErrorBound)
+                    .add()
+
+                    // Interval between position updates in milliseconds (minimum 50)
+                    .append(new KeyedCodec<Integer>("TrackingIntervalMillis", Codec.INTEGER),
+                            (config, value, info) -> config.trackingIntervalMillis = value,
+                            (config, info) -> config.trackingIntervalMillis)
+                    .add()
+
+                    // Max time in microseconds a world thread may spend collecting positions per update
+                    .append(new KeyedCodec<Integer>("WorldCollectionBudgetMicros", Codec.INTEGER),
+                            (config, value, info) -> config.worldCollectionBudgetMicros = value,
+                            (config, info) -> config.worldCollectionBudgetMicros)
+                    .add()
+
+                    // Update players with nobody nearby less often (nearest player distance)
+                    .append(new KeyedCodec<Boolean>("ProximityPriorityEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.proximityPriorityEnabled = value,
+                            (config, info) -> config.proximityPriorityEnabled)
+                    .add()
+
+                    // Max outgoing websocket bytes per second (0 = unlimited)
+                    .append(new KeyedCodec<Integer>("OutboundBytesPerSecond", Codec.INTEGER),
+                            (config, value, info) -> config.outboundBytesPerSecond = value,
+                            (config, info) -> config.outboundBytesPerSecond)
+                    .add()
+
+                    // Reference players and worlds by small session IDs in position updates (if the API supports it)
+                    .append(new KeyedCodec<Boolean>("CompactIdsEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.compactIdsEnabled = value,
+                            (config, info) -> config.compactIdsEnabled)
+                    .add()
+
+                    // Position precision in blocks (0.001 to 1) used to detect movement and encode positions
+                    .append(new KeyedCodec<Double>("PositionPrecision", Codec.DOUBLE),
+                            (config, value, info) -> config.positionPrecision = value,
+                            (config, info) -> config.positionPrecision)
+                    .add()
+
+                    // Lower position precision for players far from everyone else (fine / coarse / presence-only)
+                    .append(new KeyedCodec<Boolean>("LevelOfDetailEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.levelOfDetailEnabled = value,
+                            (config, info) -> config.levelOfDetailEnabled)
+                    .add()
+
+                    // Compute per-pair voice gains in the plugin and send them to the API
+                    .append(new KeyedCodec<Boolean>("AttenuationEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.attenuationEnabled = value,
+                            (config, info) -> config.attenuationEnabled)
+                    .add()
+
+                    // Gain falloff with distance: Linear, Quadratic or Inverse
+                    .append(new KeyedCodec<String>("AttenuationCurve", Codec.STRING),
+                            (config, value, info) -> config.attenuationCurve = value,
+                            (config, info) -> config.attenuationCurve)
+                    .add()
+
+                    // Minimum gain change (0 to 1) before a pair is sent again
+                    .append(new KeyedCodec<Double>("GainChangeThreshold", Codec.DOUBLE),
+                            (config, value, info) -> config.gainChangeThreshold = value,
+                            (config, info) -> config.gainChangeThreshold)
+                    .add()
+
+                    // Group websocket events sent within a short window into one server:batch frame (if the API supports it)
+                    .append(new KeyedCodec<Boolean>("FrameBatchingEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.frameBatchingEnabled = value,
+                            (config, info) -> config.frameBatchingEnabled)
+                    .add()
+
+                    // How long the writer waits for more events before sending a batch
+                    .append(new KeyedCodec<Integer>("FrameBatchWindowMillis", Codec.INTEGER),
+                            (config, value, info) -> config.frameBatchWindowMillis = value,
+                            (config, info) -> config.frameBatchWindowMillis)
+                    .add()
+
+                    // Deflate payloads above the threshold with a shared dictionary (if the API supports it)
+                    .append(new KeyedCodec<Boolean>("CompressionEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.compressionEnabled = value,
+                            (config, info) -> config.compressionEnabled)
+                    .add()
+
+                    // Minimum payload size in bytes before it is compressed
+                    .append(new KeyedCodec<Integer>("CompressionThresholdBytes", Codec.INTEGER),
+                            (config, value, info) -> config.compressionThresholdBytes = value,
+                            (config, info) -> config.compressionThresholdBytes)
+                    .add()
+
+                    // Resume the websocket session after a short disconnect, sending only the missed updates (if the API supports it)
+                    .append(new KeyedCodec<Boolean>("SessionResumeEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.sessionResumeEnabled = value,
+                            (config, info) -> config.sessionResumeEnabled)
+                    .add()
+
+                    // Ask the API to acknowledge player updates and heartbeats, recording round-trip latency (if the API supports it)
+                    .append(new KeyedCodec<Boolean>("LatencyTrackingEnabled", Codec.BOOLEAN),
+                            (config, value, info) -> config.latencyTrackingEnabled = value,
+                            (config, info) -> config.latencyTrackingEnabled)
+                    .add()
+
+                    // How long to wait for an acknowledgement before counting it as timed out
+                    .append(new KeyedCodec<Integer>("AckTimeoutMillis", Codec.INTEGER),
+                            (config, value, info) -> config.ackTimeoutMillis = value,
+                            (config, info) -> config.ackTimeoutMillis)
+                    .add()
+
                     // Base URL - URL base da voicechat
                     .append(new KeyedCodec<String>("BaseUrl", Codec.STRING),
                             (config, value, info) -> config.baseUrl = value,
@@ -105,6 +252,49 @@ public class VoiceChatConfig {
 
     private boolean logWebsocketInfoInConsole = false;
 
+    private boolean deltaPlayerUpdatesEnabled = false;
+
+    private boolean proximityNeighboursEnabled = false;
+    private static final double DEFAULT_VOICE_RANGE = 32.0;
+    private double voiceRange = DEFAULT_VOICE_RANGE;
+    // Last invalid VoiceRange already warned about, so the getter doesn't spam the log
+    private double warnedVoiceRange = DEFAULT_VOICE_RANGE;
+
+    private boolean binaryPlayerUpdatesEnabled = false;
+
+    private boolean eventDrivenTrackingEnabled = false;
+
+    private boolean proximityPriorityEnabled = false;
+
+    private int outboundBytesPerSecond = 0;
+
+    private boolean compactIdsEnabled = false;
+
+    private double positionPrecision = 0.01;
+
+    private boolean levelOfDetailEnabled = false;
+
+    private boolean attenuationEnabled = false;
+    private String attenuationCurve = "Linear";
+    private double gainChangeThreshold = 0.05;
+
+    private boolean frameBatchingEnabled = false;
+    private int frameBatchWindowMillis = 5;
+
+    private boolean sessionResumeEnabled = false;
+
+    private boolean latencyTrackingEnabled = false;
+    private int ackTimeoutMillis = 5000;
+
+    private boolean compressionEnabled = false;
+    private int compressionThresholdBytes = 1024;
+
+    private int trackingIntervalMillis = 1000;
+    private int worldCollectionBudgetMicros = 1000;
+
+    private boolean deadReckoningEnabled = false;
+    private double deadReckoningErrorBound = 0.5;
+
     private String baseUrl = "https://voice.nemtudo.me";
     private String apiBaseUrl = "https://apihytale.nemtudo.me";
     private String websocketBaseUrl = "wss://apihytale.nemtudo.me";
@@ -148,6 +338,115 @@ public class VoiceChatConfig {
         return logWebsocketInfoInConsole;
     }
 
+    public boolean getDeltaPlayerUpdatesEnabled() {
+        return deltaPlayerUpdatesEnabled;
+    }
+
+    public boolean getProximityNeighboursEnabled() {
+        return proximityNeighboursEnabled;
+    }
+
+    /**
+     * Falls back to the default when the configured range is not a positive number,
+     * since it sizes the spatial grid cells
+     */
+    public double getVoiceRange() {
+        double range = voiceRange;
+        if (range > 0 && Double.isFinite(range)) {
+            return range;
+        }
+
+        if (Double.compare(range, warnedVoiceRange) != 0) {
+            warnedVoiceRange = range;
+            LOGGER.atWarning().log("VoiceRange must be a positive number (got " + range + "), using " + DEFAULT_VOICE_RANGE);
+        }
+        return DEFAULT_VOICE_RANGE;
+    }
+
+    public boolean getBinaryPlayerUpdatesEnabled() {
+        return binaryPlayerUpdatesEnabled;
+    }
+
+    public boolean getEventDrivenTrackingEnabled() {
+        return eventDrivenTrackingEnabled;
+    }
+
+    public boolean getFrameBatchingEnabled() {
+        return frameBatchingEnabled;
+    }
+
+    public int getFrameBatchWindowMillis() {
+        return frameBatchWindowMillis;
+    }
+
+    public boolean getLatencyTrackingEnabled() {
+        return latencyTrackingEnabled;
+    }
+
+    public int getAckTimeoutMillis() {
+        return ackTimeoutMillis;
+    }
+
+    public boolean getSessionResumeEnabled() {
+        return sessionResumeEnabled;
+    }
+
+    public boolean getCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public int getCompressionThresholdBytes() {
+        return compressionThresholdBytes;
+    }
+
+    public boolean getAttenuationEnabled() {
+        return attenuationEnabled;
+    }
+
+    public String getAttenuationCurve() {
+        return attenuationCurve;
+    }
+
+    public double getGainChangeThreshold() {
+        return gainChangeThreshold;
+    }
+
+    public boolean getLevelOfDetailEnabled() {
+        return levelOfDetailEnabled;
+    }
+
+    public double getPositionPrecision() {
+        return positionPrecision;
+    }
+
+    public boolean getCompactIdsEnabled() {
+        return compactIdsEnabled;
+    }
+
+    public int getOutboundBytesPerSecond() {
+        return outboundBytesPerSecond;
+    }
+
+    public boolean getProximityPriorityEnabled() {
+        return proximityPriorityEnabled;
+    }
+
+    public int getTrackingIntervalMillis() {
+        return trackingIntervalMillis;
+    }
+
+    public int getWorldCollectionBudgetMicros() {
+        return worldCollectionBudgetMicros;
+    }
+
+    public boolean getDeadReckoningEnabled() {
+        return deadReckoningEnabled;
+    }
+
+    public double getDeadReckoningErrorBound() {
+        return deadReckoningErrorBound;
+    }
+
     public String getBaseUrl() {
         return baseUrl;
     }
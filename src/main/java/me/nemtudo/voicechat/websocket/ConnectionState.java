@@ -0,0 +1,18 @@
+package me.nemtudo.voicechat.websocket;
+
+/**
+ * Estados da conexão com o backend.
+ * <p>
+ * DISCONNECTED → CONNECTING → CONNECTED; uma falha ou queda leva a BACKOFF, que volta
+ * a CONNECTING quando a espera termina. {@link WebSocketManager#disconnect()} volta a
+ * DISCONNECTED e CLOSED é final (plugin desligado).
+ */
+public enum ConnectionState {
+    // Parado, sem nova tentativa agendada
+    DISCONNECTED,
+    CONNECTING,
+    CONNECTED,
+    // Esperando para tentar de novo
+    BACKOFF,
+    CLOSED
+}
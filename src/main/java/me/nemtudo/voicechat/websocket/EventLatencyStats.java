@@ -0,0 +1,50 @@
+package me.nemtudo.voicechat.websocket;
+
+import me.nemtudo.voicechat.utils.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latência de ida e volta (escrita no socket até o ack do backend) por tipo de evento,
+ * e quantos acks não chegaram dentro do prazo
+ */
+public class EventLatencyStats {
+
+    private final Map<String, EventLatency> events = new ConcurrentHashMap<>();
+
+    public void record(String event, long nanos) {
+        get(event).histogram.recordNanos(nanos);
+    }
+
+    public void recordTimeout(String event) {
+        get(event).timeouts.incrementAndGet();
+    }
+
+    /**
+     * Estatísticas de cada evento que já pediu ack, em ordem de nome
+     */
+    public Map<String, EventLatency> snapshot() {
+        return new TreeMap<>(events);
+    }
+
+    private EventLatency get(String event) {
+        return events.computeIfAbsent(event, e -> new EventLatency());
+    }
+
+    public static final class EventLatency {
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicLong timeouts = new AtomicLong();
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public long getTimeouts() {
+            return timeouts.get();
+        }
+    }
+}
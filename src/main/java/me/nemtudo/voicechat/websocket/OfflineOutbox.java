@@ -0,0 +1,124 @@
+package me.nemtudo.voicechat.websocket;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caixa de saída limitada para eventos emitidos com o socket desconectado.
+ * <p>
+ * Guarda apenas o último evento de cada chave (ex.: o UUID do jogador), na ordem em
+ * que aconteceram. Um evento pode anular o anterior da mesma chave (ex.: um disconnect
+ * anula um connect que o backend nunca viu). Ao passar da capacidade, o evento mais
+ * antigo é descartado. Eventos que saíram da caixa mas não chegaram a ser escritos
+ * quando a conexão caiu voltam para ela com {@link #requeue}.
+ */
+public class OfflineOutbox {
+
+    private final int capacity;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private long dropped = 0;
+
+    public OfflineOutbox(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Guarda um evento para ser enviado na próxima conexão
+     *
+     * @param key            Chave de coalescência (ex.: UUID do jogador)
+     * @param event          Nome do evento
+     * @param cancelledEvent Evento pendente da mesma chave que este anula, ou null
+     * @param args           Argumentos do evento
+     * @return false se um evento antigo precisou ser descartado por falta de espaço
+     */
+    public synchronized boolean add(String key, String event, String cancelledEvent, Object[] args) {
+        Entry previous = entries.remove(key);
+        if (previous != null && cancelledEvent != null && Objects.equals(previous.event, cancelledEvent)) {
+            return true;
+        }
+
+        entries.put(key, new Entry(key, event, cancelledEvent, args));
+
+        if (entries.size() > capacity) {
+            Iterator<Entry> oldest = entries.values().iterator();
+            oldest.next();
+            oldest.remove();
+            dropped++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Devolve eventos que saíram da caixa (ou foram emitidos conectados) mas não foram
+     * escritos no socket. Eles aconteceram antes dos que estão guardados, então entram
+     * na frente, com as mesmas regras de coalescência.
+     *
+     * @param undelivered eventos na ordem em que aconteceram
+     * @return false se algum evento precisou ser descartado por falta de espaço
+     */
+    public synchronized boolean requeue(List<Entry> undelivered) {
+        if (undelivered.isEmpty()) {
+            return true;
+        }
+
+        List<Entry> newer = new ArrayList<>(entries.values());
+        entries.clear();
+
+        boolean kept = true;
+        for (Entry entry : undelivered) {
+            kept &= add(entry.key, entry.event, entry.cancelledEvent, entry.args);
+        }
+        for (Entry entry : newer) {
+            kept &= add(entry.key, entry.event, entry.cancelledEvent, entry.args);
+        }
+        return kept;
+    }
+
+    /**
+     * Remove e retorna os eventos guardados, na ordem em que aconteceram
+     */
+    public synchronized List<Entry> drain() {
+        List<Entry> drained = new ArrayList<>(entries.values());
+        entries.clear();
+        return drained;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public static final class Entry {
+
+        private final String key;
+        private final String event;
+        private final String cancelledEvent;
+        private final Object[] args;
+
+        /**
+         * Evento durável emitido com o socket conectado, para voltar à caixa se não for escrito
+         */
+        Entry(String key, String event, String cancelledEvent, Object[] args) {
+            this.key = key;
+            this.event = event;
+            this.cancelledEvent = cancelledEvent;
+            this.args = args;
+        }
+
+        public String getEvent() {
+            return event;
+        }
+
+        public Object[] getArgs() {
+            return args;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package me.nemtudo.voicechat.websocket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fila de saída com orçamento de banda (token bucket em bytes por segundo).
+ * <p>
+ * As mensagens saem por prioridade: controle, depois entradas/saídas de jogadores,
+ * depois o estado contínuo (posições, vizinhos, ganhos). O estado não tem fila: cada
+ * tipo tem um slot "último vence", então um frame novo substitui o que ainda não saiu,
+ * e os slots saem na ordem em que foram preenchidos. Quem emite diffs consulta
+ * {@link #canSend} e segura o próximo diff enquanto o anterior não saiu.
+ * Se controle e entradas/saídas passarem de {@value #MAX_BACKLOG} mensagens, elas saem
+ * mesmo sem orçamento (o balde fica negativo), então essas filas não crescem sem limite
+ * e a dívida é paga pelo estado. Com orçamento 0 tudo é enviado na hora, como antes.
+ * <p>
+ * Cada mensagem é cobrada pelo tamanho em UTF-8 ao sair daqui; se a thread de escrita a
+ * comprimir, ela informa o tamanho real em {@link #settle} e o balde é acertado.
+ */
+public class OutboundScheduler {
+
+    public enum Priority {
+        CONTROL,
+        MEMBERSHIP,
+        // Diffs de estado que não são posições (vizinhos, ganhos): um slot por evento
+        STATE,
+        // Frames de posições (keyframe ou delta): um único slot
+        POSITIONS
+    }
+
+    private static final int MAX_BACKLOG = 256;
+    private static final String POSITIONS_SLOT = "";
+
+    /**
+     * Recebe as mensagens liberadas pelo orçamento
+     */
+    public interface Sender {
+
+        /**
+         * @param durable evento durável que a mensagem carrega (ainda pode voltar para a
+         *                caixa de saída se a conexão cair), ou null
+         * @param charged bytes cobrados do orçamento pela mensagem (0 sem orçamento)
+         */
+        void send(String event, Object[] args, OfflineOutbox.Entry durable, int charged);
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final Sender sender;
+
+    private final Map<Priority, Queue<Outbound>> queues = new EnumMap<>(Priority.class);
+    // Slots "último vence" do estado, por evento (posições em POSITIONS_SLOT), em ordem de chegada
+    private final Map<String, Outbound> pendingState = new LinkedHashMap<>();
+
+    private long bytesPerSecond;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private boolean drainScheduled = false;
+
+    public OutboundScheduler(ScheduledExecutorService scheduler, Sender sender) {
+        this.scheduler = scheduler;
+        this.sender = sender;
+        queues.put(Priority.CONTROL, new ArrayDeque<>());
+        queues.put(Priority.MEMBERSHIP, new ArrayDeque<>());
+    }
+
+    /**
+     * Define o orçamento em bytes por segundo (0 = sem limite).
+     * O balde comporta até um segundo de orçamento.
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        if (this.bytesPerSecond != bytesPerSecond) {
+            this.bytesPerSecond = Math.max(0, bytesPerSecond);
+            this.tokens = this.bytesPerSecond;
+        }
+    }
+
+    /**
+     * Enfileira uma mensagem de controle ou de entrada/saída (FIFO dentro da prioridade),
+     * ou ocupa o slot de estado do evento
+     */
+    public synchronized void enqueue(Priority priority, String event, Object[] args) {
+        switch (priority) {
+            case POSITIONS -> enqueuePositions(event, args);
+            case STATE -> {
+                pendingState.put(event, new Outbound(event, args, null));
+                drain();
+            }
+            default -> {
+                queues.get(priority).add(new Outbound(event, args, null));
+                drain();
+            }
+        }
+    }
+
+    /**
+     * Enfileira eventos duráveis (entradas/saídas) de uma vez, na ordem dada, sem
+     * intercalar com outros emits. {@link #clear} devolve os que ainda não saíram.
+     */
+    public synchronized void enqueueDurable(List<OfflineOutbox.Entry> entries) {
+        for (OfflineOutbox.Entry entry : entries) {
+            queues.get(Priority.MEMBERSHIP).add(new Outbound(entry.getEvent(), entry.getArgs(), entry));
+        }
+        drain();
+    }
+
+    /**
+     * Enfileira um frame de posições, substituindo o que ainda estiver pendente
+     */
+    public synchronized void enqueuePositions(String event, Object[] args) {
+        pendingState.put(POSITIONS_SLOT, new Outbound(event, args, null));
+        drain();
+    }
+
+    /**
+     * Verifica se um novo frame de posições sairia agora. Quando não sairia, o
+     * chamador pode segurar o delta: as mudanças se acumulam por jogador e saem
+     * juntas no próximo frame.
+     */
+    public synchronized boolean canSendPositions() {
+        return canSendSlot(POSITIONS_SLOT);
+    }
+
+    /**
+     * Verifica se um novo diff de estado (prioridade {@link Priority#STATE}) do evento
+     * sairia agora. Quando não sairia, o chamador segura o diff e calcula o próximo
+     * contra o último enviado.
+     */
+    public synchronized boolean canSend(String event) {
+        return canSendSlot(event);
+    }
+
+    /**
+     * Acerta o balde com o tamanho realmente escrito de uma mensagem que foi cobrada
+     * por {@code charged} bytes (ex.: depois de comprimida)
+     */
+    public synchronized void settle(int charged, int written) {
+        if (bytesPerSecond == 0 || charged == 0 || charged == written) {
+            return;
+        }
+
+        refill();
+        tokens = Math.min(bytesPerSecond, tokens + charged - written);
+        drain();
+    }
+
+    /**
+     * Descarta tudo o que está pendente (ex.: ao desconectar)
+     *
+     * @return os eventos duráveis descartados, na ordem em que foram enfileirados
+     */
+    public synchronized List<OfflineOutbox.Entry> clear() {
+        List<OfflineOutbox.Entry> durable = new ArrayList<>();
+        for (Outbound outbound : queues.get(Priority.MEMBERSHIP)) {
+            if (outbound.durable != null) {
+                durable.add(outbound.durable);
+            }
+        }
+
+        queues.values().forEach(Queue::clear);
+        pendingState.clear();
+        return durable;
+    }
+
+    private boolean canSendSlot(String slot) {
+        if (bytesPerSecond == 0) {
+            return true;
+        }
+
+        refill();
+        return !pendingState.containsKey(slot) &&
+                queues.get(Priority.CONTROL).isEmpty() &&
+                queues.get(Priority.MEMBERSHIP).isEmpty() &&
+                tokens > 0;
+    }
+
+    private void drain() {
+        refill();
+
+        Outbound next;
+        while ((next = peek()) != null) {
+            // Mensagens maiores que o balde saem quando ele está cheio, deixando-o negativo;
+            // com fila demais, controle e entradas/saídas saem mesmo assim
+            boolean overdue = backlog() > MAX_BACKLOG;
+            if (bytesPerSecond > 0 && !overdue && tokens < next.size && tokens < bytesPerSecond) {
+                scheduleDrain(next.size);
+                return;
+            }
+
+            poll();
+            int charged = 0;
+            if (bytesPerSecond > 0) {
+                charged = next.size;
+                tokens -= charged;
+            }
+            sender.send(next.event, next.args, next.durable, charged);
+        }
+    }
+
+    private int backlog() {
+        return queues.get(Priority.CONTROL).size() + queues.get(Priority.MEMBERSHIP).size();
+    }
+
+    private Outbound peek() {
+        for (Queue<Outbound> queue : queues.values()) {
+            if (!queue.isEmpty()) {
+                return queue.peek();
+            }
+        }
+        return pendingState.isEmpty() ? null : pendingState.values().iterator().next();
+    }
+
+    private void poll() {
+        for (Queue<Outbound> queue : queues.values()) {
+            if (!queue.isEmpty()) {
+                queue.poll();
+                return;
+            }
+        }
+
+        Iterator<Outbound> oldest = pendingState.values().iterator();
+        oldest.next();
+        oldest.remove();
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            tokens = Math.min(bytesPerSecond, tokens + bytesPerSecond * ((now - lastRefillNanos) / 1_000_000_000.0));
+        }
+        lastRefillNanos = now;
+    }
+
+    private void scheduleDrain(int size) {
+        if (drainScheduled) {
+            return;
+        }
+
+        double missing = Math.min(size, bytesPerSecond) - tokens;
+        long delayMillis = Math.max(1, (long) Math.ceil(missing * 1000.0 / bytesPerSecond));
+
+        drainScheduled = true;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                drainScheduled = false;
+                drain();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tamanho aproximado de um evento no socket: o nome e os argumentos em UTF-8
+     * (binários pelo tamanho do array), sem o enquadramento do socket.io
+     */
+    static int estimateSize(String event, Object[] args) {
+        int size = utf8Length(event);
+        for (Object arg : args) {
+            if (arg instanceof byte[]) {
+                size += ((byte[]) arg).length;
+            } else if (arg != null) {
+                size += utf8Length(arg.toString());
+            }
+        }
+        return size;
+    }
+
+    private static int utf8Length(String text) {
+        int length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // 2 bytes até 0x7FF, 3 acima; um par de surrogates soma 4
+                length += c < 0x800 || Character.isSurrogate(c) ? 1 : 2;
+            }
+        }
+        return length;
+    }
+
+    private static final class Outbound {
+
+        private final String event;
+        private final Object[] args;
+        private final OfflineOutbox.Entry durable;
+        private final int size;
+
+        private Outbound(String event, Object[] args, OfflineOutbox.Entry durable) {
+            this.event = event;
+            this.args = args;
+            this.durable = durable;
+            this.size = estimateSize(event, args);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package me.nemtudo.voicechat.websocket;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.json.JSONArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread única de escrita no socket.
+ * <p>
+ * Qualquer thread pode chamar {@link #submit}: os eventos entram numa fila sem locks
+ * (vários produtores, um consumidor) e só a thread de escrita chama o socket.io.
+ * Com o agrupamento ligado, a thread espera uma janela curta depois do primeiro evento
+ * e junta os eventos agrupáveis em um único frame {@value #BATCH_EVENT}, na ordem de
+ * chegada: {@code [[evento, args...], ...]}. Um evento sozinho sai como evento normal.
+ * <p>
+ * Antes de agrupar, cada evento com um único payload passa pelo {@link PayloadCompressor};
+ * comprimido, ele sai (sozinho ou dentro do lote) como {@value #COMPRESSED_EVENT}, e o
+ * tamanho real é informado ao orçamento pelo {@link BudgetSettler}.
+ */
+public class OutboundWriter {
+
+    public static final String BATCH_EVENT = "server:batch";
+    // Envelope dos payloads comprimidos: [evento original, "text" | "binary", bytes deflate]
+    public static final String COMPRESSED_EVENT = "server:deflated";
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private final HytaleLogger LOGGER;
+    private final BiConsumer<String, Object[]> sink;
+    private final PayloadCompressor compressor;
+    private final BudgetSettler settler;
+    private final Queue<Frame> queue = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+
+    // 0 = sem agrupamento
+    private volatile long batchWindowNanos = 0;
+    private volatile boolean running = true;
+
+    /**
+     * Comprime o payload de um evento; só é chamado pela thread de escrita
+     */
+    public interface PayloadCompressor {
+
+        /**
+         * @return os argumentos do envelope {@value #COMPRESSED_EVENT}, ou null para escrever o evento como está
+         */
+        Object[] compress(String event, Object payload);
+    }
+
+    /**
+     * Recebe o tamanho real de um evento cobrado pelo orçamento que saiu comprimido
+     */
+    public interface BudgetSettler {
+
+        void settle(int charged, int written);
+    }
+
+    /**
+     * @param sink       envia um evento pelo socket; só é chamado pela thread de escrita
+     * @param compressor comprime os payloads grandes antes do agrupamento
+     * @param settler    acerta o orçamento de banda com o tamanho comprimido
+     */
+    public OutboundWriter(String threadName, HytaleLogger logger, BiConsumer<String, Object[]> sink,
+                          PayloadCompressor compressor, BudgetSettler settler) {
+        this.LOGGER = logger;
+        this.sink = sink;
+        this.compressor = compressor;
+        this.settler = settler;
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Enfileira um evento que pode ir dentro de um {@value #BATCH_EVENT}
+     */
+    public void submit(String event, Object[] args) {
+        submit(event, args, true);
+    }
+
+    /**
+     * Enfileira um evento
+     *
+     * @param batchable false para eventos que o backend precisa receber soltos (ex.: heartbeat);
+     *                  eventos com ack nunca são agrupados
+     */
+    public void submit(String event, Object[] args, boolean batchable) {
+        submit(new Frame(event, args, batchable && !PendingAck.isPresent(args), null, 0));
+    }
+
+    /**
+     * Enfileira um evento liberado pelo {@link OutboundScheduler}
+     *
+     * @param charged bytes cobrados do orçamento pelo evento (0 sem orçamento)
+     */
+    public void submit(String event, Object[] args, int charged) {
+        submit(new Frame(event, args, !PendingAck.isPresent(args), null, charged));
+    }
+
+    /**
+     * Enfileira um evento durável; {@link #clear} o devolve se ainda não tiver sido escrito
+     *
+     * @param charged bytes cobrados do orçamento pelo evento (0 sem orçamento)
+     */
+    public void submitDurable(OfflineOutbox.Entry entry, int charged) {
+        submit(new Frame(entry.getEvent(), entry.getArgs(), true, entry, charged));
+    }
+
+    private void submit(Frame frame) {
+        if (!running) {
+            return;
+        }
+
+        queue.add(frame);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Define a janela de agrupamento (0 = cada evento sai sozinho)
+     */
+    public void setBatchWindowMillis(long batchWindowMillis) {
+        batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, batchWindowMillis));
+    }
+
+    /**
+     * Descarta o que ainda não foi escrito (ex.: ao desconectar)
+     *
+     * @return os eventos duráveis descartados, na ordem em que foram enfileirados
+     */
+    public List<OfflineOutbox.Entry> clear() {
+        List<OfflineOutbox.Entry> durable = new ArrayList<>();
+        Frame frame;
+        while ((frame = queue.poll()) != null) {
+            if (frame.durable != null) {
+                durable.add(frame.durable);
+            }
+        }
+        return durable;
+    }
+
+    public void shutdown() {
+        running = false;
+        queue.clear();
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Frame> pending = new ArrayList<>();
+
+        while (running) {
+            if (queue.isEmpty()) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            long window = batchWindowNanos;
+            if (window > 0) {
+                // Produtores acordam a thread a cada evento: espera o resto da janela
+                long deadline = System.nanoTime() + window;
+                long remaining;
+                while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+
+            Frame frame;
+            while ((frame = queue.poll()) != null) {
+                pending.add(frame);
+            }
+
+            write(pending, window > 0);
+            pending.clear();
+        }
+    }
+
+    private void write(List<Frame> frames, boolean batching) {
+        List<Frame> batch = new ArrayList<>();
+
+        for (Frame frame : frames) {
+            frame = compress(frame);
+            if (batching && frame.batchable) {
+                batch.add(frame);
+                if (batch.size() == MAX_BATCH_SIZE) {
+                    writeBatch(batch);
+                }
+                continue;
+            }
+
+            // Eventos soltos não passam na frente dos que já estão no lote
+            writeBatch(batch);
+            send(frame.event, frame.args);
+        }
+
+        writeBatch(batch);
+    }
+
+    /**
+     * Troca o evento pelo envelope comprimido, se o compressor aceitar o payload
+     */
+    private Frame compress(Frame frame) {
+        boolean acked = PendingAck.isPresent(frame.args);
+        if (frame.args.length != (acked ? 2 : 1)) {
+            return frame;
+        }
+
+        Object[] envelope;
+        try {
+            envelope = compressor.compress(frame.event, frame.args[0]);
+        } catch (RuntimeException e) {
+            LOGGER.atWarning().log("[WebSocket] Failed to compress " + frame.event + ": " + e.getMessage());
+            return frame;
+        }
+        if (envelope == null) {
+            return frame;
+        }
+
+        if (frame.charged > 0) {
+            settler.settle(frame.charged, OutboundScheduler.estimateSize(COMPRESSED_EVENT, envelope));
+        }
+        if (acked) {
+            envelope = Arrays.copyOf(envelope, envelope.length + 1);
+            envelope[envelope.length - 1] = frame.args[1];
+        }
+        return new Frame(COMPRESSED_EVENT, envelope, frame.batchable, frame.durable, frame.charged);
+    }
+
+    private void writeBatch(List<Frame> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        if (batch.size() == 1) {
+            send(batch.get(0).event, batch.get(0).args);
+        } else {
+            JSONArray entries = new JSONArray();
+            for (Frame frame : batch) {
+                JSONArray entry = new JSONArray().put(frame.event);
+                for (Object arg : frame.args) {
+                    entry.put(arg);
+                }
+                entries.put(entry);
+            }
+            send(BATCH_EVENT, new Object[]{entries});
+        }
+
+        batch.clear();
+    }
+
+    private void send(String event, Object[] args) {
+        try {
+            sink.accept(event, args);
+        } catch (RuntimeException e) {
+            LOGGER.atSevere().log("[WebSocket] Failed to write " + event + ": " + e.getMessage());
+        }
+    }
+
+    private record Frame(String event, Object[] args, boolean batchable, OfflineOutbox.Entry durable, int charged) {}
+}
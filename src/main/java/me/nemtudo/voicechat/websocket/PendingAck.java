@@ -0,0 +1,24 @@
+package me.nemtudo.voicechat.websocket;
+
+import java.util.function.Consumer;
+
+/**
+ * Pedido de ack no último argumento de um evento enfileirado. A thread de escrita o
+ * troca por um ack do socket.io no momento da escrita, então a latência medida não
+ * inclui o tempo na fila. Eventos com ack nunca vão dentro de um server:batch.
+ */
+final class PendingAck {
+
+    final long timeoutMillis;
+    // Chamado com os argumentos do ack, ou null
+    final Consumer<Object[]> onAck;
+
+    PendingAck(long timeoutMillis, Consumer<Object[]> onAck) {
+        this.timeoutMillis = timeoutMillis;
+        this.onAck = onAck;
+    }
+
+    static boolean isPresent(Object[] args) {
+        return args.length > 0 && args[args.length - 1] instanceof PendingAck;
+    }
+}
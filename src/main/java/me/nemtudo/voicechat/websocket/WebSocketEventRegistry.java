@@ -20,6 +20,7 @@ public class WebSocketEventRegistry {
         registerEvent(new VoiceJoinEvent(plugin));
         registerEvent(new VoiceLeftEvent(plugin));
         registerEvent(new PluginVersionUpdateEvent(plugin));
+        registerEvent(new PlayersAckEvent(plugin));
 
         plugin.getLogger().atInfo().log("WebSocket events registered successfully");
     }
@@ -1,47 +1,111 @@
 package me.nemtudo.voicechat.websocket;
 
 import com.hypixel.hytale.logger.HytaleLogger;
+import io.socket.client.AckWithTimeout;
 import io.socket.client.IO;
 import io.socket.client.Socket;
 import me.nemtudo.voicechat.VoiceChat;
+import me.nemtudo.voicechat.network.FrameCompressor;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 public class WebSocketManager {
 
     private final HytaleLogger LOGGER;
 
-    private static final int MAX_RECONNECT_ATTEMPTS = 30;
-    private static final long RECONNECT_DELAY = 2000;
-    private static final long ERROR_DISPLAY_DELAY = 15000;
+    // Backoff exponencial com jitter "decorrelacionado": cada espera é sorteada entre
+    // a base e o triplo da anterior, até o teto. Sem limite de tentativas.
+    private static final long BACKOFF_BASE_MILLIS = 1000;
+    private static final long BACKOFF_CAP_MILLIS = 60000;
+    private static final long CONNECT_TIMEOUT = 10000;
     private static final long PING_INTERVAL = 25000;
     private static final long PING_TIMEOUT = 60000;
+    private static final int OUTBOX_CAPACITY = 4096;
+
+    // socketApiVersion 3 = versão 2 + frames binários em server:players
+    // socketApiVersion 4 = versão 3 + posições quantizadas relativas a uma origem por mundo nos frames binários
+    public static final int SOCKET_API_VERSION = 2;
+    public static final int BINARY_SOCKET_API_VERSION = 3;
+    public static final int QUANTIZED_SOCKET_API_VERSION = 4;
 
     private final VoiceChat plugin;
     private Socket socket;
 
-    private final AtomicBoolean connected = new AtomicBoolean(false);
-    private final AtomicBoolean connecting = new AtomicBoolean(false);
-    private final AtomicBoolean disconnectForced = new AtomicBoolean(false);
+    private final AtomicReference<ConnectionState> state = new AtomicReference<>(ConnectionState.DISCONNECTED);
+    private final List<Consumer<ConnectionState>> stateListeners = new CopyOnWriteArrayList<>();
     private final AtomicInteger reconnectAttempts = new AtomicInteger(0);
+    private volatile long lastBackoffMillis = BACKOFF_BASE_MILLIS;
+    private volatile ScheduledFuture<?> retryTask;
 
     private final Map<String, Consumer<Object[]>> eventListeners = new ConcurrentHashMap<>();
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
-    private volatile boolean autoReconnect = true;
+    // Fila de saída com orçamento de banda
+    private final OutboundScheduler outbound;
+
+    // Única thread que escreve no socket, com agrupamento em server:batch
+    private final OutboundWriter writer;
+
+    // Eventos de jogadores emitidos enquanto desconectado, reenviados ao reconectar
+    private final OfflineOutbox outbox = new OfflineOutbox(OUTBOX_CAPACITY);
+
+    // Versão oferecida na query da conexão; o backend pode responder com uma menor
+    private volatile int offeredApiVersion = SOCKET_API_VERSION;
+    // Versão aceita pelo backend no evento "connected"
+    private volatile int negotiatedApiVersion = SOCKET_API_VERSION;
+
+    // IDs compactos de jogadores/mundos aceitos pelo backend no evento "connected"
+    private volatile boolean compactIdsNegotiated = false;
+
+    // Agrupamento de eventos em server:batch aceito pelo backend no evento "connected"
+    private volatile boolean batchFramesNegotiated = false;
+
+    // Compressão deflate com dicionário aceita pelo backend no evento "connected"
+    private volatile boolean compressionNegotiated = false;
+
+    // Só usado pela thread de escrita
+    private final FrameCompressor compressor = new FrameCompressor();
+
+    // Sessão retomável: o mesmo ID vale para todas as conexões deste servidor até o plugin
+    // reiniciar; a cada tentativa o rastreamento informa de qual sequência pode retomar (-1 = não pode)
+    private final String sessionId = UUID.randomUUID().toString();
+    private volatile LongSupplier resumeOffer = () -> -1;
+
+    // Latência dos eventos com ack, por tipo de evento
+    private final EventLatencyStats latencyStats = new EventLatencyStats();
+
+    // Query da última chamada a connect(), reaproveitada nas novas tentativas
+    private volatile Map<String, String> handshakeQuery = new HashMap<>();
 
     public WebSocketManager(VoiceChat plugin) {
         this.plugin = plugin;
         this.LOGGER = plugin.getLogger();
+        this.writer = new OutboundWriter("VoiceChat-WebSocket-Writer", LOGGER, this::send,
+                this::compress, this::settleOutbound);
+        this.outbound = new OutboundScheduler(scheduler, (event, args, durable, charged) -> {
+            if (durable != null) {
+                writer.submitDurable(durable, charged);
+            } else {
+                writer.submit(event, args, charged);
+            }
+        });
     }
 
     /**
@@ -50,35 +114,69 @@ public class WebSocketManager {
      * @param query Parâmetros de query string adicionais
      */
     public void connect(Map<String, String> query) {
-        query.put("socketApiVersion", "2");
+        offeredApiVersion = plugin.config.get().getBinaryPlayerUpdatesEnabled()
+                ? QUANTIZED_SOCKET_API_VERSION
+                : SOCKET_API_VERSION;
+
+        query.put("socketApiVersion", String.valueOf(offeredApiVersion));
+        if (plugin.config.get().getCompactIdsEnabled()) {
+            query.put("compactIds", "1");
+        }
+        if (plugin.config.get().getFrameBatchingEnabled()) {
+            query.put("batchFrames", "1");
+        }
+        if (plugin.config.get().getCompressionEnabled()) {
+            query.put("compression", FrameCompressor.ALGORITHM);
+            query.put("compressionDictionary", String.valueOf(FrameCompressor.DICTIONARY_VERSION));
+        }
         query.put("server_token", plugin.config.get().getServerToken());
         query.put("client_type", "server");
 
 
-        if (connecting.get() || connected.get()) {
+        if (!transition(ConnectionState.DISCONNECTED, ConnectionState.CONNECTING)) {
             if (plugin.config.get().getLogWebsocketInfoInConsole())
-                LOGGER.atInfo().log("[WebSocket] Already connected or connecting");
+                LOGGER.atInfo().log("[WebSocket] Not connecting, state is " + state.get());
             return;
         }
 
-        connecting.set(true);
-        disconnectForced.set(false);
         reconnectAttempts.set(0);
+        lastBackoffMillis = BACKOFF_BASE_MILLIS;
+        handshakeQuery = new HashMap<>(query);
 
         LOGGER.atInfo().log("[WebSocket] Starting connection...");
 
+        if (!openSocket()) {
+            transition(ConnectionState.CONNECTING, ConnectionState.DISCONNECTED);
+        }
+    }
+
+    /**
+     * Cria um socket novo e conecta. Cada tentativa monta a query de novo, com a
+     * sequência de retomada da sessão atualizada.
+     *
+     * @return false se o socket não pôde ser criado
+     */
+    private boolean openSocket() {
+        Map<String, String> query = new HashMap<>(handshakeQuery);
+        if (plugin.config.get().getSessionResumeEnabled()) {
+            query.put("sessionId", sessionId);
+            long resumeSequence = resumeOffer.getAsLong();
+            if (resumeSequence >= 0) {
+                query.put("resumeSeq", String.valueOf(resumeSequence));
+            }
+        }
+
         try {
             String socketUrl = plugin.config.get().getWebsocketBaseUrl();
 
+            // Reconexão do socket.io desligada: as novas tentativas são feitas por scheduleRetry()
             IO.Options options = IO.Options.builder()
                     .setQuery(createQueryString(query))
                     .setTransports(new String[]{"websocket", "polling"})
                     .setUpgrade(true)
-                    .setReconnection(true)
-                    .setReconnectionDelay(RECONNECT_DELAY)
-                    .setReconnectionAttempts(MAX_RECONNECT_ATTEMPTS)
-                    .setTimeout(10000)
-                    .setForceNew(false)
+                    .setReconnection(false)
+                    .setTimeout(CONNECT_TIMEOUT)
+                    .setForceNew(true)
                     .build();
 
             socket = IO.socket(URI.create(socketUrl), options);
@@ -88,19 +186,11 @@ public class WebSocketManager {
             registerEvents();
 
             socket.connect();
-
-
-            // Timeout para exibir erro se demorar muito
-            scheduler.schedule(() -> {
-                if (connecting.get() && !connected.get()) {
-                    LOGGER.atWarning().log("[WebSocket] Connection time limit exceeded");
-                    connecting.set(false);
-                }
-            }, ERROR_DISPLAY_DELAY, TimeUnit.MILLISECONDS);
+            return true;
 
         } catch (Exception e) {
             LOGGER.atSevere().log("[WebSocket] Error on create: " + e.getMessage());
-            connecting.set(false);
+            return false;
         }
     }
 
@@ -117,59 +207,217 @@ public class WebSocketManager {
     }
 
     /**
-     * Desconecta do servidor WebSocket
+     * Desconecta do servidor WebSocket, sem novas tentativas
      */
     public void disconnect() {
         LOGGER.atInfo().log("[WebSocket] Manual disconnect");
 
-        disconnectForced.set(true);
-        autoReconnect = false;
-
-        if (socket != null && socket.connected()) {
-            socket.disconnect();
+        cancelRetry();
+        if (state.get() != ConnectionState.CLOSED) {
+            setState(ConnectionState.DISCONNECTED);
         }
-
-        connected.set(false);
-        connecting.set(false);
+        closeSocket();
     }
 
     /**
-     * Tenta reconectar manualmente
+     * Tenta reconectar manualmente; durante o backoff, tenta na hora em vez de esperar
      */
     public void reconnect() {
-        if (connecting.get() || connected.get()) {
+        ConnectionState current = state.get();
+        if (current == ConnectionState.CONNECTING || current == ConnectionState.CONNECTED || current == ConnectionState.CLOSED) {
             if (plugin.config.get().getLogWebsocketInfoInConsole())
-                LOGGER.atInfo().log("[WebSocket] Already connected or connecting");
+                LOGGER.atInfo().log("[WebSocket] Not reconnecting, state is " + current);
             return;
         }
 
         if (plugin.config.get().getLogWebsocketInfoInConsole())
             LOGGER.atInfo().log("[WebSocket] Manual reconnection attempt");
-        reconnectAttempts.set(0);
-        autoReconnect = true;
 
-        if (socket != null) {
-            socket.disconnect();
+        cancelRetry();
+        closeSocket();
+        if (transition(current, ConnectionState.DISCONNECTED)) {
+            connect(new HashMap<>());
         }
-
-        connect(new HashMap<>());
     }
 
     /**
-     * Emite um evento para o servidor
+     * Emite um evento de controle para o servidor
      *
      * @param event Nome do evento
      * @param args  Argumentos do evento
      */
     public void emit(String event, Object... args) {
+        emit(OutboundScheduler.Priority.CONTROL, event, args);
+    }
+
+    /**
+     * Emite um evento para o servidor, respeitando o orçamento de banda
+     *
+     * @param priority Classe de prioridade do evento
+     * @param event    Nome do evento
+     * @param args     Argumentos do evento
+     */
+    public void emit(OutboundScheduler.Priority priority, String event, Object... args) {
+        if (socket == null || !socket.connected()) {
+            if (plugin.config.get().getLogWebsocketInfoInConsole())
+                LOGGER.atWarning().log("[WebSocket] Failed to emit: " + event);
+            return;
+        }
+
+        outbound.setBytesPerSecond(plugin.config.get().getOutboundBytesPerSecond());
+        outbound.enqueue(priority, event, args);
+    }
+
+    /**
+     * Emite um evento pedindo ack ao backend. O tempo entre a escrita no socket e o ack
+     * entra nas estatísticas de latência do evento; sem ack dentro do prazo, conta como timeout.
+     *
+     * @param priority      Classe de prioridade do evento
+     * @param event         Nome do evento
+     * @param timeoutMillis Prazo para o ack
+     * @param onAck         Chamado com os argumentos do ack (na thread do socket), ou null
+     * @param args          Argumentos do evento
+     */
+    public void emitWithAck(OutboundScheduler.Priority priority, String event, long timeoutMillis,
+                            Consumer<Object[]> onAck, Object... args) {
+        emit(priority, event, withAck(args, timeoutMillis, onAck));
+    }
+
+    private static Object[] withAck(Object[] args, long timeoutMillis, Consumer<Object[]> onAck) {
+        Object[] withAck = Arrays.copyOf(args, args.length + 1);
+        withAck[args.length] = new PendingAck(timeoutMillis, onAck);
+        return withAck;
+    }
+
+    /**
+     * Latência de ida e volta dos eventos emitidos com ack (e do heartbeat)
+     */
+    public EventLatencyStats getLatencyStats() {
+        return latencyStats;
+    }
+
+    /**
+     * Emite um evento que não pode se perder numa queda de conexão. Desconectado, ele
+     * fica na caixa de saída (só o último por chave) e é enviado ao reconectar; se a
+     * conexão cair antes de ele ser escrito, volta para a caixa.
+     *
+     * @param event          Nome do evento
+     * @param key            Chave de coalescência (ex.: UUID do jogador)
+     * @param cancelledEvent Evento pendente da mesma chave que este anula, ou null
+     * @param args           Argumentos do evento
+     */
+    public void emitDurable(String event, String key, String cancelledEvent, Object... args) {
+        synchronized (outbox) {
+            if (state.get() != ConnectionState.CONNECTED || socket == null || !socket.connected()) {
+                if (!outbox.add(key, event, cancelledEvent, args)) {
+                    LOGGER.atWarning().log("[WebSocket] Offline outbox full, dropped oldest event (" + outbox.getDropped() + " dropped)");
+                }
+                return;
+            }
+
+            // Ainda sob o lock: resetSession não pode esvaziar as filas entre a checagem e o enfileiramento
+            outbound.setBytesPerSecond(plugin.config.get().getOutboundBytesPerSecond());
+            outbound.enqueueDurable(List.of(new OfflineOutbox.Entry(key, event, cancelledEvent, args)));
+        }
+    }
+
+    /**
+     * Emite um frame de posições; substitui o frame anterior se ele ainda não saiu
+     */
+    public void emitPositions(String event, Object payload) {
+        emit(OutboundScheduler.Priority.POSITIONS, event, payload);
+    }
+
+    /**
+     * Verifica se um frame de posições sairia agora sem esperar pelo orçamento
+     */
+    public boolean canEmitPositions() {
+        return outbound.canSendPositions();
+    }
+
+    /**
+     * Verifica se um diff de estado (vizinhos, ganhos) do evento sairia agora, sem
+     * esperar pelo orçamento nem pelo diff anterior do mesmo evento
+     */
+    public boolean canEmitState(String event) {
+        return outbound.canSend(event);
+    }
+
+    private void send(String event, Object[] args) {
         if (socket != null && socket.connected()) {
-            socket.emit(event, args);
+            PendingAck pendingAck = null;
+            if (PendingAck.isPresent(args)) {
+                pendingAck = (PendingAck) args[args.length - 1];
+                args = Arrays.copyOf(args, args.length - 1);
+            }
+
+            if (pendingAck != null) {
+                // A latência de um evento comprimido conta para o evento original
+                String ackedEvent = OutboundWriter.COMPRESSED_EVENT.equals(event) ? (String) args[0] : event;
+                socket.emit(event, args, createAck(ackedEvent, pendingAck));
+            } else {
+                socket.emit(event, args);
+            }
         } else {
             if (plugin.config.get().getLogWebsocketInfoInConsole())
                 LOGGER.atWarning().log("[WebSocket] Failed to emit: " + event);
         }
     }
 
+    /**
+     * Ack do socket.io que mede o tempo desde agora (a escrita) até a resposta do backend
+     */
+    private AckWithTimeout createAck(String event, PendingAck pendingAck) {
+        long sentAt = System.nanoTime();
+        return new AckWithTimeout(pendingAck.timeoutMillis) {
+            @Override
+            public void onSuccess(Object... ackArgs) {
+                latencyStats.record(event, System.nanoTime() - sentAt);
+                if (pendingAck.onAck != null) {
+                    pendingAck.onAck.accept(ackArgs);
+                }
+            }
+
+            @Override
+            public void onTimeout() {
+                latencyStats.recordTimeout(event);
+            }
+        };
+    }
+
+    /**
+     * Comprime um payload de texto ou binário acima do limite configurado, se o backend
+     * aceitou compressão. Chamado pela thread de escrita, antes do agrupamento.
+     *
+     * @return os argumentos do envelope, ou null para enviar o evento como está
+     */
+    private Object[] compress(String event, Object payload) {
+        if (!compressionNegotiated) {
+            return null;
+        }
+
+        int threshold = plugin.config.get().getCompressionThresholdBytes();
+
+        byte[] input;
+        String type;
+        if (payload instanceof String text && text.length() >= threshold) {
+            input = text.getBytes(StandardCharsets.UTF_8);
+            type = "text";
+        } else if (payload instanceof byte[] bytes && bytes.length >= threshold) {
+            input = bytes;
+            type = "binary";
+        } else {
+            return null;
+        }
+
+        byte[] compressed = compressor.compress(input);
+        return compressed != null ? new Object[]{event, type, compressed} : null;
+    }
+
+    private void settleOutbound(int charged, int written) {
+        outbound.settle(charged, written);
+    }
+
     /**
      * Registra um listener para um evento
      *
@@ -206,15 +454,17 @@ public class WebSocketManager {
         socket.on(Socket.EVENT_CONNECT, args -> handleConnect());
         socket.on(Socket.EVENT_DISCONNECT, args -> handleDisconnect(args));
         socket.on(Socket.EVENT_CONNECT_ERROR, args -> handleConnectError(args));
-        //socket.on(Socket.EVENT_RECONNECT_ATTEMPT, args -> handleReconnectAttempt(args));
-        //socket.on(Socket.EVENT_RECONNECT_FAILED, args -> handleReconnectFailed());
 
         // Handler de heartbeat
         socket.on("heartbeat", args -> {
             if (args.length > 0) {
                 String key = args[0].toString();
                 String response = key + "." + socket.id();
-                socket.emit("heartbeat", response);
+                Object[] heartbeatArgs = new Object[]{response};
+                if (plugin.config.get().getLatencyTrackingEnabled()) {
+                    heartbeatArgs = withAck(heartbeatArgs, plugin.config.get().getAckTimeoutMillis(), null);
+                }
+                writer.submit("heartbeat", heartbeatArgs, false);
             }
         });
     }
@@ -223,10 +473,21 @@ public class WebSocketManager {
         if (plugin.config.get().getLogWebsocketInfoInConsole())
             LOGGER.atInfo().log("[WebSocket] Connected successfully");
 
-        connected.set(true);
-        connecting.set(false);
         reconnectAttempts.set(0);
-        autoReconnect = true;
+        lastBackoffMillis = BACKOFF_BASE_MILLIS;
+
+        // Envia o que ficou pendente antes de qualquer emit novo
+        synchronized (outbox) {
+            List<OfflineOutbox.Entry> pending = outbox.drain();
+            if (!pending.isEmpty()) {
+                if (plugin.config.get().getLogWebsocketInfoInConsole())
+                    LOGGER.atInfo().log("[WebSocket] Replaying " + pending.size() + " offline events");
+
+                outbound.setBytesPerSecond(plugin.config.get().getOutboundBytesPerSecond());
+                outbound.enqueueDurable(pending);
+            }
+            transition(ConnectionState.CONNECTING, ConnectionState.CONNECTED);
+        }
     }
 
     private void handleDisconnect(Object[] args) {
@@ -234,70 +495,121 @@ public class WebSocketManager {
         if (plugin.config.get().getLogWebsocketInfoInConsole())
             LOGGER.atInfo().log("[WebSocket] Disconnected: " + reason);
 
-        connected.set(false);
+        resetSession();
 
-        if ("io client disconnect".equals(reason) || "io server disconnect".equals(reason)) {
-            disconnectForced.set(true);
-            connecting.set(false);
+        // Desconexão pedida por nós (o estado já foi definido) ou pelo backend: sem nova tentativa
+        if ("io client disconnect".equals(reason)) {
             return;
         }
-
-        if (!autoReconnect || disconnectForced.get()) {
-            connecting.set(false);
+        if ("io server disconnect".equals(reason)) {
+            transition(ConnectionState.CONNECTED, ConnectionState.DISCONNECTED);
             return;
         }
 
-        // Inicia reconexão automática
-        connecting.set(true);
-        attemptReconnection();
+        scheduleRetry();
     }
 
     private void handleConnectError(Object[] args) {
         String error = args.length > 0 ? args[0].toString() : "Unknown error";
         LOGGER.atSevere().log("[WebSocket] Connection error: " + error);
 
-        connected.set(false);
-        connecting.set(false);
+        scheduleRetry();
     }
 
-    private void handleReconnectAttempt(Object[] args) {
-        int attempt = args.length > 0 ? ((Number) args[0]).intValue() : 0;
+    /**
+     * Agenda uma nova tentativa depois de uma falha ou queda (CONNECTING/CONNECTED → BACKOFF)
+     */
+    private void scheduleRetry() {
+        ConnectionState current = state.get();
+        if ((current != ConnectionState.CONNECTING && current != ConnectionState.CONNECTED) ||
+                !transition(current, ConnectionState.BACKOFF)) {
+            return;
+        }
+
+        long previous = lastBackoffMillis;
+        long delay = Math.min(BACKOFF_CAP_MILLIS,
+                ThreadLocalRandom.current().nextLong(BACKOFF_BASE_MILLIS, Math.max(BACKOFF_BASE_MILLIS, previous * 3) + 1));
+        lastBackoffMillis = delay;
+        int attempt = reconnectAttempts.incrementAndGet();
+
         if (plugin.config.get().getLogWebsocketInfoInConsole())
-            LOGGER.atInfo().log("[WebSocket] Reconnection attempt #" + attempt);
+            LOGGER.atInfo().log("[WebSocket] Reconnection attempt " + attempt + " in " + delay + " ms");
+
+        retryTask = scheduler.schedule(() -> {
+            if (transition(ConnectionState.BACKOFF, ConnectionState.CONNECTING)) {
+                closeSocket();
+                if (!openSocket()) {
+                    scheduleRetry();
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
     }
 
-    private void handleReconnectFailed() {
-        LOGGER.atWarning().log("[WebSocket] All reconnection attempts failed");
+    private void cancelRetry() {
+        ScheduledFuture<?> task = retryTask;
+        if (task != null) {
+            task.cancel(false);
+            retryTask = null;
+        }
+    }
 
-        connected.set(false);
-        connecting.set(false);
+    /**
+     * Fecha o socket atual sem disparar os handlers (o estado é definido por quem chama)
+     */
+    private void closeSocket() {
+        if (socket != null) {
+            socket.off();
+            socket.disconnect();
+        }
+        resetSession();
     }
 
     /**
-     * Lógica de reconexão automática
+     * Esquece o que foi negociado e descarta o que ainda não saiu, menos os eventos
+     * duráveis, que voltam para a caixa de saída na ordem em que aconteceram
      */
-    private void attemptReconnection() {
-        if (!autoReconnect || disconnectForced.get()) {
-            return;
+    private void resetSession() {
+        negotiatedApiVersion = SOCKET_API_VERSION;
+        compactIdsNegotiated = false;
+        setBatchFramesNegotiated(false);
+        compressionNegotiated = false;
+
+        synchronized (outbox) {
+            // O agendador primeiro: ele alimenta a thread de escrita, e o que já está lá é mais antigo
+            List<OfflineOutbox.Entry> queued = outbound.clear();
+            List<OfflineOutbox.Entry> undelivered = writer.clear();
+            undelivered.addAll(queued);
+
+            if (!outbox.requeue(undelivered)) {
+                LOGGER.atWarning().log("[WebSocket] Offline outbox full, dropped oldest event (" + outbox.getDropped() + " dropped)");
+            }
         }
+    }
 
-        reconnectAttempts.incrementAndGet();
+    private boolean transition(ConnectionState expected, ConnectionState next) {
+        if (!state.compareAndSet(expected, next)) {
+            return false;
+        }
+        // Ex.: reconnect() já desconectado; o estado não mudou, então ninguém é avisado
+        if (expected != next) {
+            notifyState(next);
+        }
+        return true;
+    }
 
-        if (reconnectAttempts.get() > MAX_RECONNECT_ATTEMPTS) {
-            LOGGER.atSevere().log("[WebSocket] Connect failed after " + MAX_RECONNECT_ATTEMPTS + " attempts");
-            connecting.set(false);
-            return;
+    private void setState(ConnectionState next) {
+        if (state.getAndSet(next) != next) {
+            notifyState(next);
         }
+    }
 
+    private void notifyState(ConnectionState next) {
         if (plugin.config.get().getLogWebsocketInfoInConsole())
-            LOGGER.atInfo().log("[WebSocket] Reconnection attempt " + reconnectAttempts.get() + "/" + MAX_RECONNECT_ATTEMPTS);
+            LOGGER.atInfo().log("[WebSocket] State: " + next);
 
-        scheduler.schedule(() -> {
-            if (!connected.get() && !disconnectForced.get()) {
-                socket.connect();
-                attemptReconnection();
-            }
-        }, RECONNECT_DELAY, TimeUnit.MILLISECONDS);
+        for (Consumer<ConnectionState> listener : stateListeners) {
+            listener.accept(next);
+        }
     }
 
     /**
@@ -317,25 +629,122 @@ public class WebSocketManager {
         return sb.toString();
     }
 
+    /**
+     * Define quem informa, a cada tentativa de conexão, a sequência da qual a sessão pode ser retomada
+     */
+    public void setResumeOffer(LongSupplier resumeOffer) {
+        this.resumeOffer = resumeOffer;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Estado atual da conexão
+     */
+    public ConnectionState getState() {
+        return state.get();
+    }
+
+    /**
+     * Registra um listener chamado a cada mudança de estado (na thread que fez a mudança)
+     */
+    public void addStateListener(Consumer<ConnectionState> listener) {
+        stateListeners.add(listener);
+    }
+
+    /**
+     * Tentativas de reconexão desde a última conexão bem-sucedida
+     */
+    public int getReconnectAttempts() {
+        return reconnectAttempts.get();
+    }
+
     /**
      * Verifica se está conectado
      */
     public boolean isConnected() {
-        return connected.get();
+        return state.get() == ConnectionState.CONNECTED;
     }
 
     /**
-     * Verifica se está conectando
+     * Verifica se está conectando (ou esperando para tentar de novo)
      */
     public boolean isConnecting() {
-        return connecting.get();
+        ConnectionState current = state.get();
+        return current == ConnectionState.CONNECTING || current == ConnectionState.BACKOFF;
     }
 
     /**
-     * Verifica se foi desconectado forçadamente
+     * Verifica se a conexão está parada de propósito (sem nova tentativa agendada)
      */
     public boolean isDisconnectForced() {
-        return disconnectForced.get();
+        ConnectionState current = state.get();
+        return current == ConnectionState.DISCONNECTED || current == ConnectionState.CLOSED;
+    }
+
+    /**
+     * Define a versão da API aceita pelo backend (recebida no evento "connected").
+     * Nunca passa da versão oferecida, mesmo que o backend responda com uma maior.
+     */
+    public void setNegotiatedApiVersion(int apiVersion) {
+        negotiatedApiVersion = Math.min(offeredApiVersion, apiVersion);
+    }
+
+    public int getNegotiatedApiVersion() {
+        return negotiatedApiVersion;
+    }
+
+    /**
+     * Verifica se o backend aceitou frames binários para server:players
+     */
+    public boolean supportsBinaryFrames() {
+        return negotiatedApiVersion >= BINARY_SOCKET_API_VERSION;
+    }
+
+    /**
+     * Define se o backend aceitou IDs compactos (recebido no evento "connected")
+     */
+    public void setCompactIdsNegotiated(boolean compactIds) {
+        compactIdsNegotiated = compactIds && plugin.config.get().getCompactIdsEnabled();
+    }
+
+    /**
+     * Verifica se os frames de posição usam IDs de sessão em vez de UUIDs
+     */
+    public boolean supportsCompactIds() {
+        return compactIdsNegotiated;
+    }
+
+    /**
+     * Define se o backend aceitou eventos agrupados em server:batch (recebido no evento "connected")
+     */
+    public void setBatchFramesNegotiated(boolean batchFrames) {
+        batchFramesNegotiated = batchFrames && plugin.config.get().getFrameBatchingEnabled();
+        writer.setBatchWindowMillis(batchFramesNegotiated ? plugin.config.get().getFrameBatchWindowMillis() : 0);
+    }
+
+    public boolean supportsBatchFrames() {
+        return batchFramesNegotiated;
+    }
+
+    /**
+     * Define o algoritmo de compressão aceito pelo backend (recebido no evento "connected")
+     */
+    public void setCompressionNegotiated(String compression) {
+        compressionNegotiated = FrameCompressor.ALGORITHM.equals(compression) && plugin.config.get().getCompressionEnabled();
+    }
+
+    public boolean supportsCompression() {
+        return compressionNegotiated;
+    }
+
+    /**
+     * Verifica se o backend aceitou posições quantizadas nos frames binários
+     */
+    public boolean supportsQuantizedFrames() {
+        return negotiatedApiVersion >= QUANTIZED_SOCKET_API_VERSION;
     }
 
     /**
@@ -351,13 +760,12 @@ public class WebSocketManager {
     public void shutdown() {
         LOGGER.atInfo().log("[WebSocket] Shutting down WebSocketManager");
 
-        autoReconnect = false;
-
-        if (socket != null) {
-            socket.disconnect();
-            socket.close();
-        }
+        setState(ConnectionState.CLOSED);
+        cancelRetry();
+        closeSocket();
 
+        writer.shutdown();
+        compressor.end();
         scheduler.shutdown();
         try {
             if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
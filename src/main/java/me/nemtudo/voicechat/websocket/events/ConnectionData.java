@@ -4,6 +4,10 @@ public record ConnectionData(
         boolean authenticated,
         String clientType,
         int socketApiVersion,
+        boolean compactIds,
+        boolean batchFrames,
+        String compression,
+        boolean resumed,
         long time,
         User user
 ) {
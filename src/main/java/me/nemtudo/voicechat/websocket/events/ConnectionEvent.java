@@ -14,12 +14,17 @@ public class ConnectionEvent extends BaseWebSocketEvent<ConnectionData> {
 
     @Override
     protected void onEvent(ConnectionData data) {
+        plugin.getWebsocketManager().setNegotiatedApiVersion(data.socketApiVersion());
+        plugin.getWebsocketManager().setCompactIdsNegotiated(data.compactIds());
+        plugin.getWebsocketManager().setBatchFramesNegotiated(data.batchFrames());
+        plugin.getWebsocketManager().setCompressionNegotiated(data.compression());
+
         if (data.user() != null) {
             if (!messageSent) {
                 messageSent = true;
                 plugin.getLogger().atInfo().log(ConsoleColors.success("Server connected: " + data.user().username() + " (ID: " + data.user().id() + ")"));
             }
-            plugin.getPlayerTrackingService().forceUpdate();
+            plugin.getPlayerTrackingService().onSessionStarted(data.resumed());
         }
     }
 
@@ -0,0 +1,5 @@
+package me.nemtudo.voicechat.websocket.events;
+
+public record PlayersAckData(
+        long seq
+) {}
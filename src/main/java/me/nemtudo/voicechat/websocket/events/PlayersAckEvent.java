@@ -0,0 +1,24 @@
+package me.nemtudo.voicechat.websocket.events;
+
+import me.nemtudo.voicechat.VoiceChat;
+import me.nemtudo.voicechat.websocket.BaseWebSocketEvent;
+
+/**
+ * Última sequência de server:players / server:players_delta processada pelo backend
+ */
+public class PlayersAckEvent extends BaseWebSocketEvent<PlayersAckData> {
+
+    public PlayersAckEvent(VoiceChat plugin) {
+        super(plugin, PlayersAckData.class);
+    }
+
+    @Override
+    protected void onEvent(PlayersAckData data) {
+        plugin.getPlayerTrackingService().onPlayersAcknowledged(data.seq());
+    }
+
+    @Override
+    public String getEventName() {
+        return "players:ack";
+    }
+}
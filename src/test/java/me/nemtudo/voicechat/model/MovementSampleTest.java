@@ -0,0 +1,42 @@
+package me.nemtudo.voicechat.model;
+
+import me.nemtudo.voicechat.utils.PositionQuantizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovementSampleTest {
+
+    private static final UUID WORLD = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID ALICE = UUID.fromString("11111111-1111-1111-1111-111111111111");
+
+    @Test
+    void movementIsDetectedOnTheStoreGrid() {
+        PlayerStateStore store = new PlayerStateStore();
+        store.setPositionPrecision(0.5);
+        MovementSample sample = new MovementSample(ALICE);
+        assertTrue(sample.hasMoved(WORLD, 0, 64, 0, store.getQuantizer()));
+        sample.update("Alice", WORLD, 0, 64, 0);
+
+        // Within the same half-block cell: the store would not see a change either
+        assertFalse(sample.hasMoved(WORLD, 0.2, 64, 0, store.getQuantizer()));
+        assertTrue(sample.hasMoved(WORLD, 0.3, 64, 0, store.getQuantizer()));
+
+        // Finer precision: the same small step is a movement
+        store.setPositionPrecision(0.01);
+        assertTrue(sample.hasMoved(WORLD, 0.2, 64, 0, store.getQuantizer()));
+    }
+
+    @Test
+    void worldChangeIsAlwaysAMovement() {
+        MovementSample sample = new MovementSample(ALICE);
+        PositionQuantizer quantizer = new PositionQuantizer(0.01);
+        sample.update("Alice", WORLD, 1, 2, 3);
+
+        assertFalse(sample.hasMoved(WORLD, 1, 2, 3, quantizer));
+        assertTrue(sample.hasMoved(UUID.randomUUID(), 1, 2, 3, quantizer));
+    }
+}
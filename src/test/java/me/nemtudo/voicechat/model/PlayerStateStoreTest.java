@@ -0,0 +1,56 @@
+package me.nemtudo.voicechat.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PlayerStateStoreTest {
+
+    private static final UUID INSTANCE_A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID INSTANCE_B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+    private static final UUID ALICE = UUID.fromString("11111111-1111-1111-1111-111111111111");
+
+    private final PlayerStateStore store = new PlayerStateStore();
+
+    @Test
+    void emptyWorldKeepsItsIndexUntilRecycled() {
+        int a = store.worldIndex(INSTANCE_A);
+        store.capture(ALICE, "Alice", a, true, 0, 0, 0, 1, 1000);
+
+        // Alice left the instance
+        store.removeUnseenSince(2);
+        assertNotEquals(a, store.worldIndex(INSTANCE_B));
+
+        // Coming back before a recycle gets the same index
+        assertEquals(a, store.worldIndex(INSTANCE_A));
+    }
+
+    @Test
+    void recycledIndexGoesToANewWorld() {
+        int a = store.worldIndex(INSTANCE_A);
+        store.capture(ALICE, "Alice", a, true, 0, 0, 0, 1, 1000);
+
+        store.removeUnseenSince(2);
+        store.recycleWorldIndices();
+
+        assertEquals(a, store.worldIndex(INSTANCE_B));
+        assertEquals(INSTANCE_B, store.getWorldUuidValue(a));
+        assertEquals(INSTANCE_B.toString(), store.getWorldUuid(a));
+        assertNotEquals(a, store.worldIndex(INSTANCE_A));
+    }
+
+    @Test
+    void referencedWorldIsNeverRecycled() {
+        int a = store.worldIndex(INSTANCE_A);
+        store.capture(ALICE, "Alice", a, true, 0, 0, 0, 2, 1000);
+
+        store.removeUnseenSince(2);
+        store.recycleWorldIndices();
+
+        assertEquals(a, store.worldIndex(INSTANCE_A));
+        assertNotEquals(a, store.worldIndex(INSTANCE_B));
+    }
+}
@@ -0,0 +1,56 @@
+package me.nemtudo.voicechat.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FrameHistoryTest {
+
+    @Test
+    void keyframeDropsEarlierFramesAndKeepsTheirAnnouncements() {
+        FrameHistory history = new FrameHistory(64);
+        history.record(1, true, "server:players", "k1", "a1");
+        history.record(2, false, "server:players", "d2", "a2");
+        history.record(3, false, "server:players", "d3", null);
+        history.record(4, true, "server:players", "k4", "a4");
+        history.record(5, false, "server:players", "d5", null);
+
+        List<FrameHistory.Entry> frames = history.replay();
+        assertEquals(2, frames.size());
+        assertEquals(4, frames.get(0).getSequence());
+        assertEquals(List.of("a1", "a2", "a4"), frames.get(0).getAnnouncements());
+        assertEquals(5, frames.get(1).getSequence());
+        assertEquals(0, history.resumableSequence());
+    }
+
+    @Test
+    void keyframeOnlyHistoryHoldsASingleSnapshot() {
+        FrameHistory history = new FrameHistory(64);
+        for (long seq = 1; seq <= 100; seq++) {
+            history.record(seq, true, "server:players", "k" + seq, null);
+        }
+
+        List<FrameHistory.Entry> frames = history.replay();
+        assertEquals(1, frames.size());
+        assertEquals("k100", frames.get(0).getPayload());
+    }
+
+    @Test
+    void overflowWithoutAKeyframeCannotBeReplayed() {
+        FrameHistory history = new FrameHistory(2);
+        history.record(1, true, "server:players", "k1", "a1");
+        history.record(2, false, "server:players", "d2", null);
+        history.record(3, false, "server:players", "d3", null);
+
+        assertNull(history.replay());
+        assertEquals(-1, history.resumableSequence());
+
+        // A later keyframe covers the lost frames
+        history.record(4, true, "server:players", "k4", null);
+        assertEquals(List.of("a1"), history.replay().get(0).getAnnouncements());
+        assertEquals(0, history.resumableSequence());
+    }
+}
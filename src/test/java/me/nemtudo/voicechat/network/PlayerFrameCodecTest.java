@@ -0,0 +1,285 @@
+package me.nemtudo.voicechat.network;
+
+import me.nemtudo.voicechat.model.PlayerStateStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerFrameCodecTest {
+
+    private static final UUID OVERWORLD = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID NETHER = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+    private static final UUID ALICE = UUID.fromString("11111111-1111-1111-1111-111111111111");
+    private static final UUID BOB = UUID.fromString("22222222-2222-2222-2222-222222222222");
+    private static final UUID CAROL = UUID.fromString("33333333-3333-3333-3333-333333333333");
+
+    private static final double FLOAT_TOLERANCE = 1e-3;
+
+    private PlayerStateStore store;
+    private PlayerFrameCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        store = new PlayerStateStore();
+        codec = new PlayerFrameCodec();
+    }
+
+    @Test
+    void keyframeWritesEveryPlayerWithNamesAndFrameLocalWorlds() {
+        int nether = store.worldIndex(NETHER);
+        int overworld = store.worldIndex(OVERWORLD);
+        store.capture(ALICE, "Alice", overworld, true, 10.25, 64, -3.5, 1, 1000);
+        store.capture(BOB, "Bob", nether, true, -100, 70.5, 2000.75, 1, 1000);
+        store.capture(CAROL, "Carol", overworld, false, 0, 0, 0, 1, 1000);
+
+        PlayerFrameDecoder.Frame frame = PlayerFrameDecoder.decode(codec.encodeKeyframe(store, 7, false, null, false));
+
+        assertEquals(PlayerFrameCodec.FORMAT_VERSION, frame.version);
+        assertEquals(PlayerFrameCodec.FRAME_KEYFRAME, frame.type);
+        assertEquals(7, frame.seq);
+        assertEquals(1000, frame.time);
+        assertEquals(3, frame.playerCount);
+        assertEquals(3, frame.entries.size());
+        assertTrue(frame.removedUuids.isEmpty());
+
+        // Only worlds with a positioned player, in order of first use
+        assertEquals(2, frame.worlds.size());
+        assertEquals(OVERWORLD, frame.worlds.get(0).uuid);
+        assertEquals(NETHER, frame.worlds.get(1).uuid);
+
+        PlayerFrameDecoder.Entry alice = frame.entry(ALICE);
+        assertEquals("Alice", alice.name);
+        assertTrue(alice.has(PlayerFrameCodec.FLAG_POSITION));
+        assertFalse(alice.has(PlayerFrameCodec.FLAG_VELOCITY));
+        assertEquals(OVERWORLD, frame.worlds.get(alice.world).uuid);
+        assertPosition(alice, 10.25, 64, -3.5, FLOAT_TOLERANCE);
+
+        PlayerFrameDecoder.Entry bob = frame.entry(BOB);
+        assertEquals(NETHER, frame.worlds.get(bob.world).uuid);
+        assertPosition(bob, -100, 70.5, 2000.75, FLOAT_TOLERANCE);
+
+        PlayerFrameDecoder.Entry carol = frame.entry(CAROL);
+        assertEquals("Carol", carol.name);
+        assertFalse(carol.has(PlayerFrameCodec.FLAG_POSITION));
+    }
+
+    @Test
+    void deltaWritesOnlyChangedPlayersAndRemovals() {
+        int overworld = store.worldIndex(OVERWORLD);
+        store.capture(ALICE, "Alice", overworld, true, 1, 2, 3, 1, 1000);
+        store.capture(BOB, "Bob", overworld, true, 4, 5, 6, 1, 1000);
+        store.capture(CAROL, "Carol", overworld, true, 7, 8, 9, 1, 1000);
+        store.markAllSent();
+
+        store.capture(ALICE, "Alice", overworld, true, 1.5, 2, 3, 2, 2000);
+        store.capture(BOB, "Bobby", overworld, true, 4, 5, 6, 2, 2000);
+        store.remove(CAROL);
+
+        PlayerFrameDecoder.Frame frame = PlayerFrameDecoder.decode(codec.encodeDelta(store, 8, false, null, false));
+
+        assertEquals(PlayerFrameCodec.FRAME_DELTA, frame.type);
+        assertEquals(2, frame.playerCount);
+        assertEquals(2, frame.entries.size());
+        assertEquals(List.of(CAROL), frame.removedUuids);
+
+        // Names only for new or renamed players
+        PlayerFrameDecoder.Entry alice = frame.entry(ALICE);
+        assertFalse(alice.has(PlayerFrameCodec.FLAG_NAME));
+        assertPosition(alice, 1.5, 2, 3, FLOAT_TOLERANCE);
+        assertEquals("Bobby", frame.entry(BOB).name);
+    }
+
+    @Test
+    void velocityIsWrittenOnlyWhenRequested() {
+        int overworld = store.worldIndex(OVERWORLD);
+        store.capture(ALICE, "Alice", overworld, true, 0, 64, 0, 1, 1000);
+        store.capture(ALICE, "Alice", overworld, true, 2, 64, -1, 2, 1500);
+
+        PlayerFrameDecoder.Entry withVelocity = PlayerFrameDecoder
+                .decode(codec.encodeKeyframe(store, 1, true, null, false)).entry(ALICE);
+        assertTrue(withVelocity.has(PlayerFrameCodec.FLAG_VELOCITY));
+        assertEquals(4, withVelocity.vx, FLOAT_TOLERANCE);
+        assertEquals(0, withVelocity.vy, FLOAT_TOLERANCE);
+        assertEquals(-2, withVelocity.vz, FLOAT_TOLERANCE);
+
+        PlayerFrameDecoder.Entry withoutVelocity = PlayerFrameDecoder
+                .decode(codec.encodeKeyframe(store, 2, false, null, false)).entry(ALICE);
+        assertFalse(withoutVelocity.has(PlayerFrameCodec.FLAG_VELOCITY));
+    }
+
+    @Test
+    void playersWithoutPositionNeverCarryVelocity() {
+        store.capture(ALICE, "Alice", store.worldIndex(OVERWORLD), false, 0, 0, 0, 1, 1000);
+
+        PlayerFrameDecoder.Entry alice = PlayerFrameDecoder
+                .decode(codec.encodeKeyframe(store, 1, true, null, false)).entry(ALICE);
+        assertEquals(0, alice.flags & (PlayerFrameCodec.FLAG_POSITION | PlayerFrameCodec.FLAG_VELOCITY));
+    }
+
+    @Test
+    void compactFramesUseSessionIds() {
+        int overworld = store.worldIndex(OVERWORLD);
+        int nether = store.worldIndex(NETHER);
+        store.capture(ALICE, "Alice", overworld, true, 1, 2, 3, 1, 1000);
+        store.capture(BOB, "Bob", nether, true, 4, 5, 6, 1, 1000);
+        store.capture(CAROL, "Carol", overworld, true, 7, 8, 9, 1, 1000);
+
+        SessionIdDictionary ids = new SessionIdDictionary();
+        assertNotNull(ids.prepare(store, true));
+        PlayerFrameDecoder.Frame keyframe = PlayerFrameDecoder.decode(codec.encodeKeyframe(store, 1, true, ids, false));
+
+        assertEquals(PlayerFrameCodec.COMPACT_FORMAT_VERSION, keyframe.version);
+        assertTrue(keyframe.worlds.isEmpty());
+        PlayerFrameDecoder.Entry bob = keyframe.entry(ids.playerId(BOB));
+        assertNull(bob.name);
+        assertFalse(bob.has(PlayerFrameCodec.FLAG_NAME));
+        assertEquals(nether, bob.world);
+        assertPosition(bob, 4, 5, 6, FLOAT_TOLERANCE);
+
+        store.markAllSent();
+        store.capture(ALICE, "Alice", overworld, true, 1, 2, 4, 2, 2000);
+        store.remove(CAROL);
+        assertNull(ids.prepare(store, false));
+
+        PlayerFrameDecoder.Frame delta = PlayerFrameDecoder.decode(codec.encodeDelta(store, 2, false, ids, false));
+        assertEquals(1, delta.entries.size());
+        assertPosition(delta.entry(ids.playerId(ALICE)), 1, 2, 4, FLOAT_TOLERANCE);
+        assertEquals(List.of(ids.playerId(CAROL)), delta.removedIds);
+    }
+
+    @Test
+    void playerWhoLeftAndCameBackBeforeTheSendIsNotRemoved() {
+        int overworld = store.worldIndex(OVERWORLD);
+        store.capture(ALICE, "Alice", overworld, true, 1, 2, 3, 1, 1000);
+        store.markAllSent();
+
+        store.remove(ALICE);
+        store.capture(ALICE, "Alice", overworld, true, 4, 5, 6, 2, 2000);
+
+        PlayerFrameDecoder.Frame frame = PlayerFrameDecoder.decode(codec.encodeDelta(store, 2, false, null, false));
+        assertTrue(frame.removedUuids.isEmpty());
+        assertEquals("Alice", frame.entry(ALICE).name);
+        assertPosition(frame.entry(ALICE), 4, 5, 6, FLOAT_TOLERANCE);
+
+        // Same with session IDs: Alice keeps hers
+        SessionIdDictionary ids = new SessionIdDictionary();
+        assertNotNull(ids.prepare(store, true));
+        store.markAllSent();
+        int id = ids.playerId(ALICE);
+        store.remove(ALICE);
+        store.capture(ALICE, "Alice", overworld, true, 7, 8, 9, 3, 3000);
+        assertNull(ids.prepare(store, false));
+
+        PlayerFrameDecoder.Frame compact = PlayerFrameDecoder.decode(codec.encodeDelta(store, 4, false, ids, false));
+        assertTrue(compact.removedIds.isEmpty());
+        assertNotNull(compact.entry(id));
+    }
+
+    @Test
+    void compactDeltaSkipsRemovalsUnknownToTheSession() {
+        int overworld = store.worldIndex(OVERWORLD);
+        store.capture(ALICE, "Alice", overworld, true, 1, 2, 3, 1, 1000);
+        store.markAllSent();
+        store.remove(ALICE);
+
+        // New session: Alice was never announced in it
+        PlayerFrameDecoder.Frame delta = PlayerFrameDecoder
+                .decode(codec.encodeDelta(store, 2, false, new SessionIdDictionary(), false));
+        assertTrue(delta.removedIds.isEmpty());
+    }
+
+    @Test
+    void quantizedFramesWritePositionsRelativeToAWorldOrigin() {
+        store.setPositionPrecision(0.01);
+        int overworld = store.worldIndex(OVERWORLD);
+        int nether = store.worldIndex(NETHER);
+        store.capture(ALICE, "Alice", overworld, true, 10000.01, 64, -20000.5, 1, 1000);
+        store.capture(BOB, "Bob", overworld, true, 10002.5, 65.25, -19998, 1, 1000);
+        store.capture(CAROL, "Carol", nether, true, -3, 0, 7.77, 1, 1000);
+
+        byte[] bytes = codec.encodeKeyframe(store, 1, true, null, true);
+        PlayerFrameDecoder.Frame frame = PlayerFrameDecoder.decode(bytes);
+
+        assertEquals(PlayerFrameCodec.QUANTIZED_FORMAT_VERSION, frame.version);
+        assertEquals(0.01, frame.quantum, 1e-9);
+        assertEquals(2, frame.worlds.size());
+
+        // Origin is the centre of the world's positions
+        PlayerFrameDecoder.World origin = frame.worlds.get(frame.entry(ALICE).world);
+        assertEquals(OVERWORLD, origin.uuid);
+        assertEquals(1000125, origin.originX);
+        assertEquals(-1999925, origin.originZ);
+
+        assertPosition(frame.entry(ALICE), 10000.01, 64, -20000.5, 1e-6);
+        assertPosition(frame.entry(BOB), 10002.5, 65.25, -19998, 1e-6);
+        assertPosition(frame.entry(CAROL), -3, 0, 7.77, 1e-6);
+        assertTrue(frame.entry(BOB).has(PlayerFrameCodec.FLAG_VELOCITY));
+
+        byte[] floats = codec.encodeKeyframe(store, 1, true, null, false);
+        assertTrue(bytes.length < floats.length, bytes.length + " >= " + floats.length);
+    }
+
+    @Test
+    void quantizedCompactFramesWriteAnOriginPerWorldId() {
+        store.setPositionPrecision(0.1);
+        int overworld = store.worldIndex(OVERWORLD);
+        int nether = store.worldIndex(NETHER);
+        store.capture(ALICE, "Alice", overworld, true, 500.1, 64, 500.2, 1, 1000);
+        store.capture(BOB, "Bob", nether, true, -40, 30, -40, 1, 1000);
+
+        SessionIdDictionary ids = new SessionIdDictionary();
+        ids.prepare(store, true);
+        PlayerFrameDecoder.Frame keyframe = PlayerFrameDecoder.decode(codec.encodeKeyframe(store, 1, false, ids, true));
+
+        assertEquals(PlayerFrameCodec.QUANTIZED_COMPACT_FORMAT_VERSION, keyframe.version);
+        assertEquals(0.1, keyframe.quantum, 1e-9);
+        assertEquals(2, keyframe.worlds.size());
+        assertEquals(overworld, keyframe.entry(ids.playerId(ALICE)).world);
+        assertPosition(keyframe.entry(ids.playerId(ALICE)), 500.1, 64, 500.2, 1e-6);
+        assertPosition(keyframe.entry(ids.playerId(BOB)), -40, 30, -40, 1e-6);
+
+        // A delta only has origins for the worlds of the players it writes
+        store.markAllSent();
+        store.capture(BOB, "Bob", nether, true, -41, 30, -40, 2, 2000);
+        ids.prepare(store, false);
+        PlayerFrameDecoder.Frame delta = PlayerFrameDecoder.decode(codec.encodeDelta(store, 2, false, ids, true));
+
+        assertEquals(1, delta.worlds.size());
+        assertEquals(nether, delta.worlds.get(0).id);
+        assertPosition(delta.entry(ids.playerId(BOB)), -41, 30, -40, 1e-6);
+    }
+
+    @Test
+    void quantizedPositionsAreSnappedToTheLevelOfDetail() {
+        int overworld = store.worldIndex(OVERWORLD);
+        int slot = store.capture(ALICE, "Alice", overworld, true, 10.4, 64.6, -3.2, 1, 1000);
+        store.setLodTier(slot, PlayerStateStore.LOD_COARSE);
+
+        PlayerFrameDecoder.Frame frame = PlayerFrameDecoder.decode(codec.encodeKeyframe(store, 1, false, null, true));
+        assertPosition(frame.entry(ALICE), 10, 65, -3, 1e-6);
+    }
+
+    @Test
+    void emptyFramesOnlyHaveAHeader() {
+        PlayerFrameDecoder.Frame frame = PlayerFrameDecoder.decode(codec.encodeDelta(store, 3, true, null, true));
+        assertEquals(0, frame.playerCount);
+        assertTrue(frame.worlds.isEmpty());
+        assertTrue(frame.entries.isEmpty());
+        assertTrue(frame.removedUuids.isEmpty());
+    }
+
+    private static void assertPosition(PlayerFrameDecoder.Entry entry, double x, double y, double z, double tolerance) {
+        assertTrue(entry.has(PlayerFrameCodec.FLAG_POSITION));
+        assertEquals(x, entry.x, tolerance);
+        assertEquals(y, entry.y, tolerance);
+        assertEquals(z, entry.z, tolerance);
+    }
+}
@@ -0,0 +1,213 @@
+package me.nemtudo.voicechat.network;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reference decoder of the server:players binary frames, written from the layout in
+ * the {@link PlayerFrameCodec} Javadoc (what a backend would implement).
+ * Quantized positions are returned in blocks.
+ */
+final class PlayerFrameDecoder {
+
+    private final ByteBuffer in;
+
+    private PlayerFrameDecoder(byte[] bytes) {
+        this.in = ByteBuffer.wrap(bytes);
+    }
+
+    static Frame decode(byte[] bytes) {
+        PlayerFrameDecoder decoder = new PlayerFrameDecoder(bytes);
+        Frame frame = decoder.readFrame();
+        if (decoder.in.hasRemaining()) {
+            throw new IllegalStateException(decoder.in.remaining() + " trailing bytes");
+        }
+        return frame;
+    }
+
+    private Frame readFrame() {
+        int version = in.get();
+        boolean compact = version == PlayerFrameCodec.COMPACT_FORMAT_VERSION ||
+                version == PlayerFrameCodec.QUANTIZED_COMPACT_FORMAT_VERSION;
+        boolean quantized = version == PlayerFrameCodec.QUANTIZED_FORMAT_VERSION ||
+                version == PlayerFrameCodec.QUANTIZED_COMPACT_FORMAT_VERSION;
+        if (!compact && !quantized && version != PlayerFrameCodec.FORMAT_VERSION) {
+            throw new IllegalStateException("Unknown format version " + version);
+        }
+
+        Frame frame = new Frame(version, in.get(), readVarint(), readVarint(), (int) readVarint());
+
+        double quantum = 0;
+        if (quantized) {
+            quantum = readVarint() / 1000.0;
+            frame.quantum = quantum;
+        }
+
+        // Frame world table (UUID formats) or origin table (quantized compact format)
+        if (!compact || quantized) {
+            int worldCount = (int) readVarint();
+            for (int i = 0; i < worldCount; i++) {
+                World world = new World();
+                if (compact) {
+                    world.id = (int) readVarint();
+                } else {
+                    world.uuid = readUuid();
+                }
+                if (quantized) {
+                    world.originX = readZigzag();
+                    world.originY = readZigzag();
+                    world.originZ = readZigzag();
+                }
+                frame.worlds.add(world);
+            }
+        }
+
+        int entryCount = (int) readVarint();
+        for (int i = 0; i < entryCount; i++) {
+            Entry entry = new Entry();
+            if (compact) {
+                entry.id = (int) readVarint();
+            } else {
+                entry.uuid = readUuid();
+            }
+            entry.flags = in.get();
+
+            if ((entry.flags & PlayerFrameCodec.FLAG_NAME) != 0) {
+                byte[] name = new byte[(int) readVarint()];
+                in.get(name);
+                entry.name = new String(name, StandardCharsets.UTF_8);
+            }
+
+            if ((entry.flags & PlayerFrameCodec.FLAG_POSITION) != 0) {
+                entry.world = (int) readVarint();
+                if (quantized) {
+                    World world = compact ? frame.worldById(entry.world) : frame.worlds.get(entry.world);
+                    entry.x = (world.originX + readZigzag()) * quantum;
+                    entry.y = (world.originY + readZigzag()) * quantum;
+                    entry.z = (world.originZ + readZigzag()) * quantum;
+                } else {
+                    entry.x = in.getFloat();
+                    entry.y = in.getFloat();
+                    entry.z = in.getFloat();
+                }
+            }
+
+            if ((entry.flags & PlayerFrameCodec.FLAG_VELOCITY) != 0) {
+                entry.vx = in.getFloat();
+                entry.vy = in.getFloat();
+                entry.vz = in.getFloat();
+            }
+            frame.entries.add(entry);
+        }
+
+        int removedCount = (int) readVarint();
+        for (int i = 0; i < removedCount; i++) {
+            if (compact) {
+                frame.removedIds.add((int) readVarint());
+            } else {
+                frame.removedUuids.add(readUuid());
+            }
+        }
+        return frame;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private long readZigzag() {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private UUID readUuid() {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    static final class Frame {
+
+        final int version;
+        final int type;
+        final long seq;
+        final long time;
+        final int playerCount;
+        double quantum;
+        final List<World> worlds = new ArrayList<>();
+        final List<Entry> entries = new ArrayList<>();
+        final List<UUID> removedUuids = new ArrayList<>();
+        final List<Integer> removedIds = new ArrayList<>();
+
+        private Frame(int version, int type, long seq, long time, int playerCount) {
+            this.version = version;
+            this.type = type;
+            this.seq = seq;
+            this.time = time;
+            this.playerCount = playerCount;
+        }
+
+        World worldById(int id) {
+            for (World world : worlds) {
+                if (world.id == id) {
+                    return world;
+                }
+            }
+            throw new IllegalStateException("World " + id + " has no origin");
+        }
+
+        Entry entry(UUID uuid) {
+            for (Entry entry : entries) {
+                if (uuid.equals(entry.uuid)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        Entry entry(int id) {
+            for (Entry entry : entries) {
+                if (entry.id == id) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final class World {
+
+        UUID uuid;
+        int id = -1;
+        long originX;
+        long originY;
+        long originZ;
+    }
+
+    static final class Entry {
+
+        UUID uuid;
+        int id = -1;
+        int flags;
+        String name;
+        int world = -1;
+        double x;
+        double y;
+        double z;
+        double vx;
+        double vy;
+        double vz;
+
+        boolean has(int flag) {
+            return (flags & flag) != 0;
+        }
+    }
+}
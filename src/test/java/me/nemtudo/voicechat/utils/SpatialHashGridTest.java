@@ -0,0 +1,100 @@
+package me.nemtudo.voicechat.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpatialHashGridTest {
+
+    private static final double CELL_SIZE = 32;
+
+    @Test
+    void nearestWithinMatchesBruteForce() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE);
+            double[][] points = randomPoints(random, 1 + random.nextInt(200), 600);
+            for (int i = 0; i < points.length; i++) {
+                grid.insert(i, points[i][0], points[i][1], points[i][2]);
+            }
+
+            for (int i = 0; i < points.length; i++) {
+                for (double radius : new double[]{CELL_SIZE, CELL_SIZE * 4, CELL_SIZE * 2.5}) {
+                    assertEquals(bruteNearest(points, i, radius),
+                            grid.nearestWithin(points[i][0], points[i][1], points[i][2], radius, i), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void forEachWithinMatchesBruteForce() {
+        Random random = new Random(11);
+        SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE);
+        double[][] points = randomPoints(random, 300, 300);
+        for (int i = 0; i < points.length; i++) {
+            grid.insert(i, points[i][0], points[i][1], points[i][2]);
+        }
+
+        for (int i = 0; i < points.length; i++) {
+            List<Integer> found = new ArrayList<>();
+            grid.forEachWithin(points[i][0], points[i][1], points[i][2], CELL_SIZE, found::add);
+            found.sort(null);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int j = 0; j < points.length; j++) {
+                if (distance(points[i], points[j]) <= CELL_SIZE) {
+                    expected.add(j);
+                }
+            }
+            assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    void clearKeepsTheGridUsable() {
+        SpatialHashGrid grid = new SpatialHashGrid(CELL_SIZE);
+        for (int i = 0; i < 500; i++) {
+            grid.insert(i, i * 40, 0, 0);
+        }
+        grid.clear();
+        grid.insert(1, 10, 0, 0);
+        grid.insert(2, 20, 0, 0);
+
+        assertEquals(2, grid.size());
+        assertEquals(10, grid.nearestWithin(10, 0, 0, CELL_SIZE, 1), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, grid.nearestWithin(4000, 0, 0, CELL_SIZE, -1));
+    }
+
+    private static double[][] randomPoints(Random random, int count, double extent) {
+        double[][] points = new double[count][];
+        for (int i = 0; i < count; i++) {
+            points[i] = new double[]{
+                    random.nextDouble() * extent - extent / 2,
+                    random.nextDouble() * 64,
+                    random.nextDouble() * extent - extent / 2
+            };
+        }
+        return points;
+    }
+
+    private static double bruteNearest(double[][] points, int from, double radius) {
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < points.length; j++) {
+            double distance = distance(points[from], points[j]);
+            if (j != from && distance <= radius && distance < nearest) {
+                nearest = distance;
+            }
+        }
+        return nearest;
+    }
+
+    private static double distance(double[] a, double[] b) {
+        double dx = a[0] - b[0], dy = a[1] - b[1], dz = a[2] - b[2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
@@ -0,0 +1,68 @@
+package me.nemtudo.voicechat.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OfflineOutboxTest {
+
+    private static final String CONNECT = "player_connect";
+    private static final String DISCONNECT = "player_disconnect";
+
+    @Test
+    void keepsTheLatestEventPerKeyInOrder() {
+        OfflineOutbox outbox = new OfflineOutbox(10);
+        outbox.add("a", CONNECT, DISCONNECT, new Object[]{"a"});
+        outbox.add("b", CONNECT, DISCONNECT, new Object[]{"b"});
+        outbox.add("a", DISCONNECT, CONNECT, new Object[]{"a"});
+
+        // The disconnect cancels a connect the backend never saw
+        assertEquals(List.of("b:" + CONNECT), describe(outbox.drain()));
+    }
+
+    @Test
+    void requeuedEventsGoBeforeTheStoredOnes() {
+        OfflineOutbox outbox = new OfflineOutbox(10);
+        outbox.add("c", CONNECT, DISCONNECT, new Object[]{"c"});
+
+        assertTrue(outbox.requeue(List.of(
+                new OfflineOutbox.Entry("a", CONNECT, DISCONNECT, new Object[]{"a"}),
+                new OfflineOutbox.Entry("b", DISCONNECT, CONNECT, new Object[]{"b"})
+        )));
+
+        assertEquals(List.of("a:" + CONNECT, "b:" + DISCONNECT, "c:" + CONNECT), describe(outbox.drain()));
+    }
+
+    @Test
+    void newerStoredEventsStillCancelRequeuedOnes() {
+        OfflineOutbox outbox = new OfflineOutbox(10);
+        // Left while its connect was still waiting to be written
+        outbox.add("a", DISCONNECT, CONNECT, new Object[]{"a"});
+
+        outbox.requeue(List.of(new OfflineOutbox.Entry("a", CONNECT, DISCONNECT, new Object[]{"a"})));
+
+        assertTrue(outbox.drain().isEmpty());
+    }
+
+    @Test
+    void requeueDropsTheOldestWhenFull() {
+        OfflineOutbox outbox = new OfflineOutbox(2);
+        outbox.add("c", CONNECT, DISCONNECT, new Object[]{"c"});
+
+        assertFalse(outbox.requeue(List.of(
+                new OfflineOutbox.Entry("a", CONNECT, DISCONNECT, new Object[]{"a"}),
+                new OfflineOutbox.Entry("b", CONNECT, DISCONNECT, new Object[]{"b"})
+        )));
+
+        assertEquals(List.of("b:" + CONNECT, "c:" + CONNECT), describe(outbox.drain()));
+        assertEquals(1, outbox.getDropped());
+    }
+
+    private static List<String> describe(List<OfflineOutbox.Entry> entries) {
+        return entries.stream().map(entry -> entry.getArgs()[0] + ":" + entry.getEvent()).toList();
+    }
+}
@@ -0,0 +1,124 @@
+package me.nemtudo.voicechat.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundSchedulerTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final List<String> sent = new ArrayList<>();
+    private final List<Integer> charged = new ArrayList<>();
+    private final OutboundScheduler scheduler = new OutboundScheduler(executor,
+            (event, args, durable, charge) -> {
+                sent.add(event + ":" + args[0]);
+                charged.add(charge);
+            });
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void unlimitedBudgetSendsRightAway() {
+        scheduler.enqueue(OutboundScheduler.Priority.STATE, "gains", new Object[]{"1"});
+        scheduler.enqueue(OutboundScheduler.Priority.POSITIONS, "players", new Object[]{"1"});
+
+        assertEquals(List.of("gains:1", "players:1"), sent);
+        assertTrue(scheduler.canSend("gains"));
+        assertTrue(scheduler.canSendPositions());
+    }
+
+    @Test
+    void stateSlotsAreLatestWinsAndHoldBackTheirEvent() throws InterruptedException {
+        scheduler.setBytesPerSecond(100);
+        // Empties the bucket
+        scheduler.enqueue(OutboundScheduler.Priority.CONTROL, "big", new Object[]{"x".repeat(200)});
+
+        scheduler.enqueue(OutboundScheduler.Priority.STATE, "gains", new Object[]{"1"});
+        scheduler.enqueue(OutboundScheduler.Priority.STATE, "neighbours", new Object[]{"1"});
+        scheduler.enqueue(OutboundScheduler.Priority.STATE, "gains", new Object[]{"2"});
+
+        synchronized (scheduler) {
+            assertEquals(List.of("big:" + "x".repeat(200)), sent);
+        }
+        assertFalse(scheduler.canSend("gains"));
+        assertFalse(scheduler.canSend("neighbours"));
+
+        // Once the budget refills the slots go out in the order they were first filled
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!scheduler.canSend("neighbours") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        synchronized (scheduler) {
+            assertEquals(List.of("big:" + "x".repeat(200), "gains:2", "neighbours:1"), sent);
+        }
+    }
+
+    @Test
+    void stateDoesNotBlockPositionsOfItsOwn() {
+        scheduler.setBytesPerSecond(1_000_000);
+        scheduler.enqueue(OutboundScheduler.Priority.STATE, "gains", new Object[]{"1"});
+
+        // Sent right away: the slot is free again and positions are not queued behind it
+        assertEquals(List.of("gains:1"), sent);
+        assertTrue(scheduler.canSendPositions());
+        assertTrue(scheduler.canSend("gains"));
+    }
+
+    @Test
+    void membershipBacklogIsSentPastTheBudget() {
+        scheduler.setBytesPerSecond(10);
+        for (int i = 0; i < 1000; i++) {
+            scheduler.enqueue(OutboundScheduler.Priority.MEMBERSHIP, "player_connect", new Object[]{i});
+        }
+
+        synchronized (scheduler) {
+            // Only a bounded backlog waits for the budget
+            assertTrue(sent.size() >= 1000 - 257, "sent " + sent.size());
+            assertEquals("player_connect:0", sent.get(0));
+        }
+    }
+
+    @Test
+    void clearReturnsTheDurableEventsNotSentYet() {
+        scheduler.setBytesPerSecond(10);
+        OfflineOutbox.Entry first = new OfflineOutbox.Entry("a", "player_connect", null, new Object[]{"a"});
+        OfflineOutbox.Entry second = new OfflineOutbox.Entry("b", "player_connect", null, new Object[]{"b"});
+        scheduler.enqueueDurable(List.of(first, second));
+        scheduler.enqueue(OutboundScheduler.Priority.MEMBERSHIP, "server:id_dictionary", new Object[]{"{}"});
+
+        // The first one used up the budget
+        assertEquals(List.of("player_connect:a"), sent);
+        assertEquals(List.of(second), scheduler.clear());
+        assertTrue(scheduler.clear().isEmpty());
+    }
+
+    @Test
+    void chargesUtf8BytesAndSettlesWithTheWrittenSize() {
+        scheduler.setBytesPerSecond(1000);
+        // 6 bytes of event name, "ç" is 2 bytes in UTF-8
+        scheduler.enqueue(OutboundScheduler.Priority.CONTROL, "keyfra", new Object[]{"ç".repeat(497)});
+        scheduler.enqueue(OutboundScheduler.Priority.STATE, "gains", new Object[]{"1"});
+
+        synchronized (scheduler) {
+            assertEquals(List.of(1000), charged);
+            assertFalse(scheduler.canSend("gains"));
+
+            // The writer compressed it down to 100 bytes: the difference goes back into the bucket
+            scheduler.settle(1000, 100);
+            assertEquals(2, sent.size());
+            assertEquals("gains:1", sent.get(1));
+            assertEquals(6, charged.get(1));
+        }
+    }
+}
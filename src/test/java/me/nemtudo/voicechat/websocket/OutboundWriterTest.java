@@ -0,0 +1,84 @@
+package me.nemtudo.voicechat.websocket;
+
+import com.hypixel.hytale.logger.HytaleLogger;
+import org.json.JSONArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class OutboundWriterTest {
+
+    private static final byte[] COMPRESSED = {1, 2, 3};
+
+    private final BlockingQueue<Object[]> written = new LinkedBlockingQueue<>();
+    private final List<int[]> settled = new ArrayList<>();
+    private final OutboundWriter writer = new OutboundWriter("OutboundWriterTest", HytaleLogger.forEnclosingClass(),
+            (event, args) -> written.add(new Object[]{event, args}),
+            // Compresses any text payload of 10 characters or more
+            (event, payload) -> payload instanceof String text && text.length() >= 10
+                    ? new Object[]{event, "text", COMPRESSED}
+                    : null,
+            (charged, size) -> {
+                synchronized (settled) {
+                    settled.add(new int[]{charged, size});
+                }
+            });
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdown();
+    }
+
+    @Test
+    void compressesLargePayloadsBeforeBatching() throws InterruptedException {
+        writer.setBatchWindowMillis(20);
+        writer.submit("server:id_dictionary", new Object[]{"{}"}, 2);
+        writer.submit("server:players", new Object[]{"x".repeat(100)}, 114);
+
+        Object[] write = written.poll(5, TimeUnit.SECONDS);
+        assertNotNull(write);
+        assertEquals(OutboundWriter.BATCH_EVENT, write[0]);
+
+        JSONArray entries = (JSONArray) ((Object[]) write[1])[0];
+        assertEquals(2, entries.length());
+        assertEquals("server:id_dictionary", entries.getJSONArray(0).getString(0));
+        assertEquals("{}", entries.getJSONArray(0).getString(1));
+
+        JSONArray compressed = entries.getJSONArray(1);
+        assertEquals(OutboundWriter.COMPRESSED_EVENT, compressed.getString(0));
+        assertEquals("server:players", compressed.getString(1));
+        assertEquals("text", compressed.getString(2));
+        assertArrayEquals(COMPRESSED, (byte[]) compressed.get(3));
+
+        // Charged 114 bytes, written as the envelope: event name, original event, type and bytes
+        int envelopeSize = (OutboundWriter.COMPRESSED_EVENT + "server:players" + "text")
+                .getBytes(StandardCharsets.UTF_8).length + COMPRESSED.length;
+        synchronized (settled) {
+            assertEquals(1, settled.size());
+            assertArrayEquals(new int[]{114, envelopeSize}, settled.get(0));
+        }
+    }
+
+    @Test
+    void eventsThatWereNotChargedAreNotSettled() throws InterruptedException {
+        writer.submit("heartbeat", new Object[]{"y".repeat(50)}, false);
+
+        Object[] write = written.poll(5, TimeUnit.SECONDS);
+        assertNotNull(write);
+        assertEquals(OutboundWriter.COMPRESSED_EVENT, write[0]);
+        assertEquals("heartbeat", ((Object[]) write[1])[0]);
+        synchronized (settled) {
+            assertEquals(0, settled.size());
+        }
+    }
+}